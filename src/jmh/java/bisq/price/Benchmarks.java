@@ -0,0 +1,49 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Access to the package-private parts of the {@link PriceProvider} lifecycle, so that
+ * benchmarks can drive refreshes directly instead of going through the
+ * {@link PriceProviderScheduler}.
+ */
+public abstract class Benchmarks {
+
+    /**
+     * Refresh the given provider on the calling thread, notifying its refresh listeners
+     * exactly as a scheduled refresh would.
+     */
+    public static void refresh(PriceProvider<?> provider) {
+        provider.refresh();
+    }
+
+    /**
+     * @return an {@link ObjectMapper} configured like the application-wide one, see
+     * application.properties
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+            .indentOutput(true)
+            .build();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures recording fee rates in a full {@link FeeRateHistory} and querying its
+ * percentiles, both of which should neither allocate nor depend on its capacity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeeRateHistoryBenchmark {
+
+    private FeeRateHistory history;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        history = new FeeRateHistory(720, 1000, 0.1);
+        for (int i = 0; i < 720; i++)
+            record();
+    }
+
+    @Benchmark
+    public void record() {
+        timestamp++;
+        history.record(timestamp, 10 + timestamp * 7919 % 500);
+    }
+
+    @Benchmark
+    public long getMedian() {
+        return history.getPercentile(50);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.mining;
+
+import bisq.price.Benchmarks;
+
+import org.springframework.http.ResponseEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work done for each {@link FeeRateService} refresh and for each request
+ * served from the resulting snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeeRateServiceBenchmark {
+
+    private List<FeeRateProvider> providers;
+    private FeeRateController controller;
+
+    private int nextProvider;
+
+    @Setup
+    public void setUp() {
+        SortedMap<Integer, Long> estimates = new TreeMap<>();
+        long[] feeRates = {120, 42, 38, 30, 21, 14, 10};
+        int[] targets = {1, 2, 3, 6, 12, 24, 144};
+        for (int i = 0; i < targets.length; i++)
+            estimates.put(targets[i], feeRates[i]);
+        providers = Collections.singletonList(new RecordedProvider(new FeeRate("BTC", 42, 0, estimates)));
+        List<FixedFeeRateProvider> fixedProviders = Arrays.asList(
+            new FixedFeeRateProvider("LTC", 500) {
+            },
+            new FixedFeeRateProvider("DOGE", 5_000_000) {
+            },
+            new FixedFeeRateProvider("DASH", 50) {
+            }
+        );
+
+        FeeRateService service = new FeeRateService(new HashSet<>(providers), fixedProviders,
+            Benchmarks.objectMapper(), new SimpleMeterRegistry());
+        providers.forEach(Benchmarks::refresh);
+
+        controller = new FeeRateController(service);
+    }
+
+    /**
+     * Refresh one provider after the other, each time rebuilding the fees snapshots.
+     */
+    @Benchmark
+    public void refresh() {
+        Benchmarks.refresh(providers.get(nextProvider++ % providers.size()));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getFees() {
+        return controller.getFees(null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getFeesGzipped() {
+        return controller.getFees("gzip, deflate");
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getFeeEstimates() {
+        return controller.getFeeEstimates(null);
+    }
+
+
+    private static class RecordedProvider extends FeeRateProvider {
+
+        private final FeeRate result;
+
+        RecordedProvider(FeeRate result) {
+            super(Duration.ofMinutes(1));
+            this.result = result;
+        }
+
+        @Override
+        protected FeeRate doGet() {
+            return result;
+        }
+    }
+}
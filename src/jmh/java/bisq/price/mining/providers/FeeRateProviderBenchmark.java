@@ -0,0 +1,158 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.mining.providers;
+
+import bisq.price.mining.FeeRate;
+import bisq.price.util.CannedResponses;
+import bisq.price.util.HttpClient;
+
+import org.springframework.mock.env.MockEnvironment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Measures {@link BitcoinFeeRateProvider}'s request and parsing work against a synthetic
+ * upstream response from the payloads directory, without network I/O, and its estimation
+ * work against a generated mempool of which a fraction changes between refreshes, either
+ * listed in full or as notified changes on each refresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeeRateProviderBenchmark {
+
+    private static final int MEMPOOL_SIZE = 50_000;
+    private static final int MEMPOOL_CHURN = 1_000;
+
+    private BitcoinFeeRateProvider bitcoinFeeRateProvider;
+    private GeneratedMempool mempool;
+    private MempoolFeeEstimator mempoolFeeEstimator;
+    private GeneratedMempool trackedMempool;
+    private MempoolFeeEstimator trackedMempoolFeeEstimator;
+
+    @Setup
+    public void setUp() {
+        HttpClient httpClient = new HttpClient(new CannedResponses()
+            .with("https://bitcoinfees.earn.com/api/v1/fees/list", "payloads/earn-fees-list.json"));
+
+        bitcoinFeeRateProvider = new BitcoinFeeRateProvider(new MockEnvironment(), httpClient, new ObjectMapper());
+
+        mempool = new GeneratedMempool(false);
+        mempoolFeeEstimator = new MempoolFeeEstimator(mempool);
+        mempoolFeeEstimator.refresh();
+
+        trackedMempool = new GeneratedMempool(true);
+        trackedMempoolFeeEstimator = new MempoolFeeEstimator(trackedMempool);
+        trackedMempoolFeeEstimator.refresh();
+    }
+
+    @Benchmark
+    public FeeRate bitcoinFees() {
+        return bitcoinFeeRateProvider.doGet();
+    }
+
+    @Benchmark
+    public Map<Integer, Long> mempoolFees() {
+        mempool.offset += MEMPOOL_CHURN;
+        mempoolFeeEstimator.refresh();
+        return mempoolFeeEstimator.estimate(new int[]{1, 2, 3, 6, 12, 24, 144}, 10);
+    }
+
+    @Benchmark
+    public Map<Integer, Long> mempoolFeesFromChanges() {
+        trackedMempool.offset += MEMPOOL_CHURN;
+        trackedMempoolFeeEstimator.refresh();
+        return trackedMempoolFeeEstimator.estimate(new int[]{1, 2, 3, 6, 12, 24, 144}, 10);
+    }
+
+
+    /**
+     * A mempool of {@link #MEMPOOL_SIZE} transactions numbered from an offset, which
+     * optionally tracks the transactions that entered and left it as the offset moves.
+     */
+    private static class GeneratedMempool implements MempoolSource {
+
+        private final boolean tracking;
+        private int offset;
+        private int trackedOffset;
+
+        GeneratedMempool(boolean tracking) {
+            this.tracking = tracking;
+        }
+
+        @Override
+        public Set<String> getTxids() {
+            Set<String> txids = new HashSet<>();
+            for (int i = offset; i < offset + MEMPOOL_SIZE; i++)
+                txids.add(Integer.toHexString(i));
+            return txids;
+        }
+
+        @Override
+        public void getEntries(Collection<String> txids, BiConsumer<String, Entry> consumer) {
+            for (String txid : txids) {
+                int i = Integer.parseInt(txid, 16);
+                consumer.accept(txid, new Entry(1_000 + i % 997 * 100L, 150 + i % 400));
+            }
+        }
+
+        @Override
+        public void getAllEntries(BiConsumer<String, Entry> consumer) {
+            getEntries(getTxids(), consumer);
+        }
+
+        @Override
+        public void trackChanges() {
+            trackedOffset = offset;
+        }
+
+        @Override
+        public Optional<Changes> getChanges() {
+            if (!tracking)
+                return Optional.empty();
+
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (int i = trackedOffset; i < offset; i++) {
+                removed.add(Integer.toHexString(i));
+                added.add(Integer.toHexString(i + MEMPOOL_SIZE));
+            }
+            trackedOffset = offset;
+            return Optional.of(new Changes(added, removed));
+        }
+    }
+}
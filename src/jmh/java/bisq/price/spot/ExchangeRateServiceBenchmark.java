@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot;
+
+import bisq.price.Benchmarks;
+
+import org.springframework.http.ResponseEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the work done for each {@link ExchangeRateService} refresh, i.e. merging the
+ * results of all providers and serializing the resulting snapshots, as well as the work
+ * done for each request served from those snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExchangeRateServiceBenchmark {
+
+    // roughly the number of currencies each provider returns in production
+    private static final int FIAT_CURRENCIES = 165;
+    private static final int GLOBAL_FIAT_CURRENCIES = 32;
+    private static final int ALTCOINS = 100;
+
+    private List<ExchangeRateProvider> providers;
+    private ExchangeRateController controller;
+
+    private int nextProvider;
+
+    @Setup
+    public void setUp() {
+        providers = Arrays.asList(
+            new RecordedProvider("BTCA_G", "btcAverageG", currencies("F", GLOBAL_FIAT_CURRENCIES), 6500),
+            new RecordedProvider("BTCA_L", "btcAverageL", currencies("F", FIAT_CURRENCIES), 6500),
+            new RecordedProvider("CMC", "coinmarketcap", currencies("A", ALTCOINS), 0.01),
+            new RecordedProvider("POLO", "poloniex", currencies("A", ALTCOINS), 0.01)
+        );
+
+        ExchangeRateService service =
+            new ExchangeRateService(providers, Benchmarks.objectMapper(), new SimpleMeterRegistry());
+        providers.forEach(Benchmarks::refresh);
+
+        controller = new ExchangeRateController(service);
+    }
+
+    /**
+     * Refresh one provider after the other, each time rebuilding all snapshots.
+     */
+    @Benchmark
+    public void refresh() {
+        Benchmarks.refresh(providers.get(nextProvider++ % providers.size()));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getAllMarketPrices() {
+        return controller.getAllMarketPrices(null, null, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getAllMarketPricesGzipped() {
+        return controller.getAllMarketPrices(null, null, "gzip, deflate");
+    }
+
+    /**
+     * A typical client asking for the few currencies it trades, serialized on demand.
+     */
+    @Benchmark
+    public ResponseEntity<byte[]> getAllMarketPricesOfCurrencies() {
+        return controller.getAllMarketPrices("F00,F01,A00", null, "gzip, deflate");
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getAllMarketPricesOfProvider() {
+        return controller.getAllMarketPrices(null, "CMC", "gzip, deflate");
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getExchangeRates() {
+        return controller.getExchangeRates(null, "gzip, deflate");
+    }
+
+    private static List<String> currencies(String prefix, int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> String.format("%s%02d", prefix, i))
+            .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Returns one of two sets of exchange rates in turn, so that each refresh changes
+     * every price, as is typical for the altcoin and fiat markets over a refresh interval.
+     */
+    private static class RecordedProvider extends ExchangeRateProvider {
+
+        private final List<Set<ExchangeRate>> results = new ArrayList<>();
+        private int nextResult;
+
+        RecordedProvider(String name, String prefix, List<String> currencies, double price) {
+            super(name, prefix, Duration.ofMinutes(1));
+
+            Random random = new Random(name.hashCode());
+            for (int i = 0; i < 2; i++) {
+                long timestamp = System.currentTimeMillis() + i;
+                results.add(currencies.stream()
+                    .map(c -> new ExchangeRate(c, price * (1 + random.nextDouble()), timestamp, name))
+                    .collect(Collectors.toCollection(HashSet::new)));
+            }
+        }
+
+        @Override
+        protected Set<ExchangeRate> doGet() {
+            return results.get(nextResult++ % results.size());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot.providers;
+
+import bisq.price.spot.ExchangeRate;
+import bisq.price.util.CannedResponses;
+import bisq.price.util.HttpClient;
+
+import org.springframework.mock.env.MockEnvironment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each {@link bisq.price.spot.ExchangeRateProvider}'s request and parsing work
+ * against synthetic upstream responses from the payloads directory, without network I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExchangeRateProviderBenchmark {
+
+    private BitcoinAverage.Global bitcoinAverageGlobal;
+    private BitcoinAverage.Local bitcoinAverageLocal;
+    private CoinMarketCap coinMarketCap;
+    private Poloniex poloniex;
+
+    @Setup
+    public void setUp() {
+        HttpClient httpClient = new HttpClient(new CannedResponses()
+            .with("https://apiv2.bitcoinaverage.com/indices/global/ticker/all",
+                "payloads/bitcoinaverage-global.json")
+            .with("https://apiv2.bitcoinaverage.com/indices/local/ticker/all",
+                "payloads/bitcoinaverage-local.json")
+            .with("https://api.coinmarketcap.com/v1/ticker/", "payloads/coinmarketcap.json")
+            .with("https://poloniex.com/public", "payloads/poloniex.json"));
+
+        MockEnvironment env = new MockEnvironment()
+            .withProperty("BITCOIN_AVG_PUBKEY", "benchmark-pubkey")
+            .withProperty("BITCOIN_AVG_PRIVKEY", "benchmark-privkey")
+            .withProperty("PRICENODE_CACHE_DIR", System.getProperty("java.io.tmpdir"));
+
+        bitcoinAverageGlobal = new BitcoinAverage.Global(env, httpClient);
+        bitcoinAverageLocal = new BitcoinAverage.Local(env, httpClient);
+        coinMarketCap = new CoinMarketCap(httpClient);
+        poloniex = new Poloniex(httpClient);
+    }
+
+    // bypass doGet() so as not to use up the monthly request quota
+    @Benchmark
+    public Set<ExchangeRate> bitcoinAverageGlobal() {
+        return bitcoinAverageGlobal.fetchExchangeRates();
+    }
+
+    @Benchmark
+    public Set<ExchangeRate> bitcoinAverageLocal() {
+        return bitcoinAverageLocal.fetchExchangeRates();
+    }
+
+    @Benchmark
+    public Set<ExchangeRate> coinMarketCap() {
+        return coinMarketCap.doGet();
+    }
+
+    @Benchmark
+    public Set<ExchangeRate> poloniex() {
+        return poloniex.doGet();
+    }
+
+    @Benchmark
+    public String bitcoinAverageAuthSignature() {
+        return bitcoinAverageLocal.getAuthSignature();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.util;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockAsyncClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import java.net.URI;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link AsyncClientHttpRequestFactory} (and, as required by
+ * {@link org.springframework.web.client.AsyncRestTemplate}, {@link ClientHttpRequestFactory})
+ * that answers every request with a canned response body, held in memory and looked up
+ * by the request's host and path. Allows measuring a provider's request and parsing work
+ * without any network I/O.
+ */
+public class CannedResponses implements AsyncClientHttpRequestFactory, ClientHttpRequestFactory {
+
+    private final Map<String, byte[]> payloads = new HashMap<>();
+
+    /**
+     * Answer requests to the given URL, ignoring any query string, with the content of
+     * the given classpath resource.
+     */
+    public CannedResponses with(String url, String resource) {
+        URI uri = URI.create(url);
+        try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+            payloads.put(key(uri), StreamUtils.copyToByteArray(in));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    @Override
+    public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) {
+        MockAsyncClientHttpRequest request = new MockAsyncClientHttpRequest(httpMethod, uri);
+        request.setResponse(response(uri));
+        return request;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        MockClientHttpRequest request = new MockClientHttpRequest(httpMethod, uri);
+        request.setResponse(response(uri));
+        return request;
+    }
+
+    private MockClientHttpResponse response(URI uri) {
+        byte[] payload = payloads.get(key(uri));
+        if (payload == null)
+            throw new IllegalArgumentException("No canned response for " + uri);
+
+        MockClientHttpResponse response = new MockClientHttpResponse(payload, HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON_UTF8);
+        return response;
+    }
+
+    private static String key(URI uri) {
+        return uri.getHost() + uri.getPath();
+    }
+}
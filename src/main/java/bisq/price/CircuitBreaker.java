@@ -0,0 +1,94 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+/**
+ * Tracks the health of a {@link PriceProvider}'s upstream source, as driven by the
+ * {@link PriceProviderScheduler}:
+ * <ul>
+ * <li>{@link State#CLOSED}: refreshes succeed and happen at the regular interval.</li>
+ * <li>{@link State#OPEN}: the last refresh failed; no request is made upstream until
+ * an exponentially increasing backoff has passed, and the provider's last good result
+ * is served, marked as stale.</li>
+ * <li>{@link State#HALF_OPEN}: the backoff has passed and a trial refresh is under
+ * way, which closes the circuit if it succeeds or opens it again if it fails.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private volatile String lastFailure;
+    private volatile long retryAt;
+
+    synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        retryAt = 0;
+    }
+
+    /**
+     * @return whether this call opened a circuit that was closed before, as opposed to
+     * re-opening it after a failed trial refresh
+     */
+    synchronized boolean recordFailure(Throwable failure, long retryAt) {
+        boolean opened = state == State.CLOSED;
+        state = State.OPEN;
+        consecutiveFailures++;
+        lastFailure = failure.toString();
+        this.retryAt = retryAt;
+        return opened;
+    }
+
+    synchronized void recordTrial() {
+        if (state == State.OPEN)
+            state = State.HALF_OPEN;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return a description of the most recent failure, or null if there never was one
+     */
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch at which the next trial refresh is
+     * due while the circuit is open, or 0 otherwise
+     */
+    public long getRetryAt() {
+        return state == State.OPEN ? retryAt : 0;
+    }
+}
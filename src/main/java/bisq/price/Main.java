@@ -25,12 +25,22 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 
+import java.util.Arrays;
 import java.util.Properties;
 
 @SpringBootApplication
 public class Main {
 
-    public static void main(String[] args) {
+    /**
+     * Run the pricenode with Spring Boot, or in a slim mode given
+     * {@value SlimServer#SLIM_OPTION}, see {@link SlimServer}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (Arrays.asList(args).contains(SlimServer.SLIM_OPTION)) {
+            new SlimServer().run(args, bisqProperties());
+            return;
+        }
+
         new SpringApplicationBuilder(Main.class)
             .properties(bisqProperties())
             .run(args);
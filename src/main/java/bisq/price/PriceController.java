@@ -17,9 +17,9 @@
 
 package bisq.price;
 
-import org.springframework.web.bind.annotation.ModelAttribute;
-
-import javax.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,8 +28,37 @@ public abstract class PriceController {
 
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
 
-    @ModelAttribute
-    public void logRequest(HttpServletRequest request) {
-        log.info("Incoming {} request from: {}", request.getServletPath(), request.getHeader("User-Agent"));
+    /**
+     * Write the given pre-serialized snapshot as-is to the response body, using its
+     * pre-compressed form if the client accepts gzip encoding. Because the response
+     * carries the snapshot's ETag, Spring MVC answers conditional requests whose
+     * {@code If-None-Match} header matches it with a body-less 304 Not Modified.
+     */
+    protected ResponseEntity<byte[]> respond(Snapshot snapshot, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptsGzip(acceptEncoding))
+            return response
+                .eTag(snapshot.getGzippedEtag())
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(snapshot.getGzippedJson());
+
+        return response
+            .eTag(snapshot.getEtag())
+            .body(snapshot.getJson());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim()))
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
     }
 }
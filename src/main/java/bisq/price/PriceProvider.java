@@ -17,26 +17,35 @@
 
 package bisq.price;
 
-import org.springframework.context.SmartLifecycle;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import java.time.Duration;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class PriceProvider<T> implements SmartLifecycle, Supplier<T> {
+/**
+ * Abstract base class for providers of price data that is fetched periodically from an
+ * upstream source and cached in between. Refreshes are driven by the shared
+ * {@link PriceProviderScheduler} rather than by each provider itself.
+ */
+public abstract class PriceProvider<T> implements Supplier<T> {
 
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
 
-    private final Timer timer = new Timer(true);
-
     protected final Duration refreshInterval;
 
-    private T cachedResult;
+    private final List<Runnable> refreshListeners = new CopyOnWriteArrayList<>();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private volatile T cachedResult;
+    private volatile long lastRefreshed;
 
     public PriceProvider(Duration refreshInterval) {
         this.refreshInterval = refreshInterval;
@@ -46,40 +55,65 @@ public abstract class PriceProvider<T> implements SmartLifecycle, Supplier<T> {
     @Override
     public final T get() {
         if (!isRunning())
-            throw new IllegalStateException("call start() before calling get()");
+            throw new IllegalStateException("get() called before first refresh completed");
 
         return cachedResult;
     }
 
-    @Override
-    public final void start() {
-        // we call refresh outside the context of a timer once at startup to ensure that
-        // any exceptions thrown get propagated and cause the application to halt
-        refresh();
-
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    refresh();
-                } catch (Throwable t) {
-                    // we only log scheduled calls to refresh that fail to ensure that
-                    // the application does *not* halt, assuming the failure is temporary
-                    // and on the side of the upstream price provider, eg. BitcoinAverage
-                    log.warn("refresh failed", t);
-                }
-            }
-        }, refreshInterval.toMillis(), refreshInterval.toMillis());
-    }
-
-    private void refresh() {
+    /**
+     * Fetch fresh data from the upstream provider and cache it.
+     */
+    void refresh() {
+        update(fetch());
+    }
+
+    /**
+     * Fetch fresh data from the upstream provider without caching it yet, such that the
+     * {@link PriceProviderScheduler} can discard data fetched only after the refresh
+     * timed out, see {@link #update}.
+     */
+    T fetch() {
         long ts = System.currentTimeMillis();
 
-        cachedResult = doGet();
+        T result = doGet();
 
-        log.info("refresh took {} ms.", (System.currentTimeMillis() - ts));
+        log.debug("refresh took {} ms.", (System.currentTimeMillis() - ts));
+
+        return result;
+    }
+
+    /**
+     * Cache the given freshly fetched result, see {@link #fetch()}.
+     */
+    void update(T result) {
+        cachedResult = result;
+        lastRefreshed = System.currentTimeMillis();
+        circuitBreaker.recordSuccess();
 
         onRefresh();
+
+        notifyRefreshListeners();
+    }
+
+    /**
+     * Cache a result obtained other than by refreshing, e.g. one restored from the
+     * {@link PriceProviderCache}, as if it had been refreshed at the given time.
+     */
+    void restore(T result, long lastRefreshed) {
+        cachedResult = result;
+        this.lastRefreshed = lastRefreshed;
+
+        onRefresh();
+
+        notifyRefreshListeners();
+    }
+
+    /**
+     * Notify refresh listeners that this provider's cached result or its
+     * {@link CircuitBreaker} state changed.
+     */
+    void notifyRefreshListeners() {
+        refreshListeners.forEach(Runnable::run);
     }
 
     protected abstract T doGet();
@@ -87,29 +121,80 @@ public abstract class PriceProvider<T> implements SmartLifecycle, Supplier<T> {
     protected void onRefresh() {
     }
 
-    @Override
-    public void stop() {
-        timer.cancel();
+    /**
+     * Write the given result in the compact binary form read by {@link #readResult}.
+     */
+    protected abstract void writeResult(DataOutput out, T result) throws IOException;
+
+    /**
+     * Read a result in the compact binary form written by {@link #writeResult}.
+     */
+    protected abstract T readResult(DataInput in) throws IOException;
+
+    /**
+     * Register a listener to be notified each time this provider's cached result has
+     * been refreshed, e.g. in order to rebuild data derived from it.
+     */
+    public void addRefreshListener(Runnable listener) {
+        refreshListeners.add(listener);
     }
 
-    @Override
-    public void stop(Runnable callback) {
-        stop();
-        callback.run();
+    /**
+     * @return the circuit breaker tracking the health of this provider's upstream
+     * source; while it is not closed, {@link #get()} returns the last good result
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
-    @Override
-    public boolean isAutoStartup() {
-        return true;
+    /**
+     * @return whether the result returned by {@link #get()} is the last good one rather
+     * than a current one, as the latest refresh failed
+     */
+    public boolean isStale() {
+        return !circuitBreaker.isClosed();
     }
 
-    @Override
+    /**
+     * @return a short name identifying this provider in logs and metrics
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * @return the delay until the next refresh following a successful one; the refresh
+     * interval unless overridden, e.g. to refresh more often while prices move fast
+     */
+    protected Duration getNextRefreshDelay() {
+        return refreshInterval;
+    }
+
+    /**
+     * @return the minimum delay until the next refresh following any refresh, successful
+     * or not, e.g. to stay within an upstream API's request quota; none unless overridden
+     */
+    protected Duration getMinRefreshDelay() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * @return whether the first refresh has completed, i.e. whether {@link #get()} may
+     * be called
+     */
     public boolean isRunning() {
         return cachedResult != null;
     }
 
-    @Override
-    public int getPhase() {
-        return 0;
+    /**
+     * @return the time in milliseconds since the epoch at which the cached result was
+     * last refreshed, or 0 if it never has been
+     */
+    public long getLastRefreshed() {
+        return lastRefreshed;
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists the latest result of each {@link PriceProvider} to a small binary file, and
+ * restores it at startup, such that a restarted node can serve its last known data
+ * (along with its original timestamps) right away rather than only after all upstream
+ * providers have responded, and even if some of them are down.
+ * <p>
+ * Each provider's result is written to a temporary file that then atomically replaces
+ * the previous one, such that a crash while writing never leaves a corrupt cache behind.
+ * The cache directory defaults to {@code ~/.cache/bisq-pricenode} and can be configured
+ * with the {@value #CACHE_DIR_PROPERTY} property.
+ */
+@Component
+class PriceProviderCache {
+
+    static final String CACHE_DIR_PROPERTY = "PRICENODE_CACHE_DIR";
+
+    private static final int MAGIC = 0x42505243; // "BPRC"
+    private static final int FORMAT_VERSION = 2;
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final Path directory;
+
+    public PriceProviderCache(Environment env) {
+        this.directory = directory(env);
+    }
+
+    /**
+     * @return the configured cache directory
+     */
+    static Path directory(Environment env) {
+        return Paths.get(env.getProperty(CACHE_DIR_PROPERTY,
+            Paths.get(System.getProperty("user.home"), ".cache", "bisq-pricenode").toString()));
+    }
+
+    /**
+     * @return whether a previously cached result could be restored into the given provider
+     */
+    <T> boolean restore(PriceProvider<T> provider) {
+        Path file = fileFor(provider);
+        if (!Files.isRegularFile(file))
+            return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("ignoring {} as it is not in the expected format", file);
+                return false;
+            }
+            // the file was last written right after the refresh that produced its result
+            provider.restore(provider.readResult(in), Files.getLastModifiedTime(file).toMillis());
+            log.info("restored last known result of {} from {}", provider.getName(), file);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("could not restore last known result of {} from {}: {}",
+                provider.getName(), file, ex.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Persist the given provider's current result, replacing any previously cached one.
+     * Failures are logged rather than thrown, as the cache is merely an optimization.
+     */
+    <T> void save(PriceProvider<T> provider) {
+        Path file = fileFor(provider);
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                provider.writeResult(out, provider.get());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("could not cache result of {} to {}: {}",
+                provider.getName(), file, ex.toString());
+        }
+    }
+
+    private Path fileFor(PriceProvider<?> provider) {
+        // include the name to tell apart providers of the same class, e.g. XChange-based ones
+        return directory.resolve(provider.getClass().getName() + "-" + provider.getName() + ".bin");
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives the periodic refresh of all {@link PriceProvider} implementations from a single
+ * scheduling thread and a bounded pool of worker threads, such that adding providers
+ * does not add threads. A failed refresh opens the provider's {@link CircuitBreaker},
+ * and while this node follows another one, see {@link Replication}, no provider is
+ * refreshed at all.
+ */
+@Component
+class PriceProviderScheduler implements SmartLifecycle {
+
+    private static final int WORKER_THREADS = 4;
+
+    private static final Duration STARTUP_DEADLINE = Duration.ofSeconds(60);
+    private static final Duration REFRESH_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(30);
+
+    private static final String REFRESH_TIMER = "pricenode.provider.refresh";
+    private static final String RESULT_AGE_GAUGE = "pricenode.provider.result.age";
+    private static final String REFRESH_INTERVAL_GAUGE = "pricenode.provider.refresh.interval";
+    private static final String STALE_GAUGE = "pricenode.provider.stale";
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final List<PriceProvider<?>> providers;
+    private final PriceProviderCache cache;
+    private final Replication replication;
+    private final MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService scheduler =
+        Executors.newSingleThreadScheduledExecutor(daemonThreads("price-scheduler-"));
+
+    private final ExecutorService workers =
+        Executors.newFixedThreadPool(WORKER_THREADS, daemonThreads("price-refresh-"));
+
+    // the next refresh scheduled for each provider
+    private final Map<PriceProvider<?>, ScheduledFuture<?>> nextRefreshes = new ConcurrentHashMap<>();
+
+    private final boolean reportingStartup;
+
+    private volatile boolean running;
+
+    public PriceProviderScheduler(List<PriceProvider<?>> providers, PriceProviderCache cache,
+                                  Replication replication, Environment env, MeterRegistry meterRegistry) {
+        this.providers = providers;
+        this.cache = cache;
+        this.replication = replication;
+        this.meterRegistry = meterRegistry;
+        this.reportingStartup = env.containsProperty(SlimServer.REPORT_STARTUP_PROPERTY);
+
+        replication.addTakeoverListener(this::takeOver);
+
+        providers.forEach(provider -> {
+            Gauge.builder(RESULT_AGE_GAUGE, provider, PriceProviderScheduler::resultAgeSeconds)
+                .description("Time since the provider's current result was fetched")
+                .tag("provider", provider.getName())
+                .baseUnit("seconds")
+                .register(meterRegistry);
+            Gauge.builder(REFRESH_INTERVAL_GAUGE, provider, p -> nextRefreshDelay(p).toMillis() / 1000.0)
+                .description("Delay between the provider's successful refreshes as currently adapted")
+                .tag("provider", provider.getName())
+                .baseUnit("seconds")
+                .register(meterRegistry);
+            Gauge.builder(STALE_GAUGE, provider, p -> p.isStale() ? 1 : 0)
+                .description("Whether the provider serves its last good result as its latest refresh failed")
+                .tag("provider", provider.getName())
+                .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Restore each provider's last known result from the {@link PriceProviderCache} where
+     * available, and run the initial refreshes of all providers in parallel. Fails if that
+     * of any provider without a restored result fails or does not complete within
+     * {@link #STARTUP_DEADLINE}; the others complete in the background. When only
+     * reporting startup, see {@link SlimServer#REPORT_STARTUP_OPTION}, no provider is
+     * refreshed, such that no upstream is contacted.
+     */
+    @Override
+    public void start() {
+        if (reportingStartup) {
+            providers.forEach(provider -> {
+                if (!provider.isRunning())
+                    cache.restore(provider);
+            });
+            log.info("not refreshing any provider, as only reporting startup");
+            running = true;
+            return;
+        }
+
+        List<CompletableFuture<Void>> requiredRefreshes = new ArrayList<>();
+        for (PriceProvider<?> provider : providers) {
+            // a follower may already have replicated a more recent result from its leader
+            boolean restored = provider.isRunning() || cache.restore(provider);
+            CompletableFuture<Void> refresh = refresh(provider);
+            if (!restored)
+                requiredRefreshes.add(refresh);
+        }
+        CompletableFuture<?>[] initialRefreshes = requiredRefreshes.toArray(new CompletableFuture<?>[0]);
+
+        // we wait for the initial refreshes to ensure that any exceptions thrown get
+        // propagated and cause the application to halt
+        try {
+            CompletableFuture.allOf(initialRefreshes).get(STARTUP_DEADLINE.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("initial refresh failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("initial refresh did not complete within " + STARTUP_DEADLINE, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted during initial refresh", ex);
+        }
+
+        running = true;
+    }
+
+    /**
+     * Refresh the given provider, cancelling the refresh if it does not complete within
+     * {@link #REFRESH_TIMEOUT}, and schedule the next one: after the provider's adapted
+     * refresh interval if it succeeded, or else after an exponentially increasing,
+     * jittered backoff. Only the failure opening the provider's circuit is logged as a
+     * warning, such that a dead upstream does not flood the log.
+     */
+    private CompletableFuture<Void> refresh(PriceProvider<?> provider) {
+        // followers replicate results from their leader rather than fetching them
+        // upstream, but keep checking in case they get to lead
+        if (!replication.isLeader()) {
+            schedule(provider, provider.getRefreshInterval());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CircuitBreaker circuitBreaker = provider.getCircuitBreaker();
+        circuitBreaker.recordTrial();
+        int failures = circuitBreaker.getConsecutiveFailures();
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        // set by whichever settles the refresh first: the worker or the timeout
+        AtomicBoolean settled = new AtomicBoolean();
+
+        Future<?> task = workers.submit(() -> fetchAndUpdate(provider, settled, result));
+
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+            if (settled.compareAndSet(false, true)) {
+                result.completeExceptionally(new TimeoutException("refresh timed out after " + REFRESH_TIMEOUT));
+                task.cancel(true);
+            }
+        }, REFRESH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        result.whenComplete((ignored, t) -> {
+            timeout.cancel(false);
+            sample.stop(refreshTimer(provider, t));
+
+            if (t == null) {
+                if (failures > 0)
+                    log.info("refresh of {} succeeded again after {} failure(s)", provider.getName(), failures);
+                schedule(provider, nextRefreshDelay(provider));
+                return;
+            }
+
+            // we only log failed refreshes to ensure that the application does *not*
+            // halt, assuming the failure is temporary and on the side of the upstream
+            // price provider, eg. BitcoinAverage
+            Duration backoff = max(backoff(provider, failures + 1), provider.getMinRefreshDelay());
+            if (circuitBreaker.recordFailure(t, System.currentTimeMillis() + backoff.toMillis())) {
+                log.warn("refresh of {} failed, serving its last good result until a retry in {} succeeds",
+                    provider.getName(), backoff, t);
+                // let listeners mark the provider's result as stale
+                provider.notifyRefreshListeners();
+            } else {
+                log.debug("refresh of {} failed {} time(s) in a row, retrying in {}: {}",
+                    provider.getName(), failures + 1, backoff, t.toString());
+            }
+            schedule(provider, backoff);
+        });
+
+        return result;
+    }
+
+    /**
+     * Fetch the given provider's result and cache it, unless the refresh timed out first.
+     * As upstream calls need not respond to the interruption cancelling a refresh, they
+     * are bounded by the timeouts of their {@link bisq.price.util.HttpClient} instead.
+     */
+    private <T> void fetchAndUpdate(PriceProvider<T> provider, AtomicBoolean settled,
+                                    CompletableFuture<Void> result) {
+        T fetched;
+        try {
+            fetched = provider.fetch();
+        } catch (Throwable t) {
+            if (settled.compareAndSet(false, true))
+                result.completeExceptionally(t);
+            return;
+        }
+
+        // a result fetched after the refresh timed out must not undo the failure recorded
+        // for it, nor overwrite a result fetched by a later refresh
+        if (!settled.compareAndSet(false, true)) {
+            log.debug("discarding result of {} fetched after its refresh timed out", provider.getName());
+            return;
+        }
+
+        try {
+            provider.update(fetched);
+            cache.save(provider);
+            result.complete(null);
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+    }
+
+    private void schedule(PriceProvider<?> provider, Duration delay) {
+        if (scheduler.isShutdown())
+            return;
+
+        ScheduledFuture<?> next = scheduler.schedule(() -> refresh(provider), delay.toMillis(), TimeUnit.MILLISECONDS);
+        nextRefreshes.put(provider, next);
+    }
+
+    /**
+     * Refresh all providers right away once this node stops following a leader, rather
+     * than serving the former leader's results until each provider's next refresh is due.
+     */
+    private void takeOver() {
+        if (!running || scheduler.isShutdown())
+            return;
+
+        // on the scheduling thread, such that no follower's refresh reschedules itself meanwhile
+        scheduler.execute(() -> providers.forEach(provider -> {
+            ScheduledFuture<?> next = nextRefreshes.get(provider);
+            // a refresh still in progress schedules the next one itself
+            if (next != null && next.cancel(false))
+                refresh(provider);
+        }));
+    }
+
+    /**
+     * @return the timer of the given provider's refreshes with the outcome of the given
+     * failure, if any: success, failure or timeout
+     */
+    private Timer refreshTimer(PriceProvider<?> provider, Throwable failure) {
+        String outcome = failure == null ? "success" : failure instanceof TimeoutException ? "timeout" : "failure";
+        return Timer.builder(REFRESH_TIMER)
+            .description("Time taken to fetch and cache a provider's result")
+            .tags("provider", provider.getName(), "outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private static double resultAgeSeconds(PriceProvider<?> provider) {
+        if (!provider.isRunning())
+            return Double.NaN;
+
+        return (System.currentTimeMillis() - provider.getLastRefreshed()) / 1000.0;
+    }
+
+    /**
+     * @return the provider's refresh interval, doubled for each consecutive failure
+     * beyond the first, capped at {@link #MAX_BACKOFF} (or the refresh interval if
+     * greater), and stretched by up to half again to keep retries from synchronizing
+     */
+    private static Duration backoff(PriceProvider<?> provider, int failures) {
+        long interval = provider.getRefreshInterval().toMillis();
+        long max = Math.max(interval, MAX_BACKOFF.toMillis());
+        long delay = Math.min(interval << Math.min(failures - 1, 20), max);
+        return Duration.ofMillis(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private static Duration nextRefreshDelay(PriceProvider<?> provider) {
+        return max(provider.getNextRefreshDelay(), provider.getMinRefreshDelay());
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String threadNamePrefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reports the {@link CircuitBreaker} state of each {@link PriceProvider}, along with the
+ * age of the result it currently serves, for operators to spot failing upstreams.
+ */
+@RestController
+class ProviderStatusController extends PriceController {
+
+    private final List<PriceProvider<?>> providers;
+
+    public ProviderStatusController(List<PriceProvider<?>> providers) {
+        this.providers = providers;
+    }
+
+    @GetMapping(path = "/providers/status")
+    public List<Map<String, Object>> getProviderStatus() {
+        long now = System.currentTimeMillis();
+        return providers.stream()
+            .map(p -> getStatus(p, now))
+            .collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> getStatus(PriceProvider<?> provider, long now) {
+        CircuitBreaker circuitBreaker = provider.getCircuitBreaker();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("provider", provider.getName());
+        status.put("state", circuitBreaker.getState());
+        status.put("stale", provider.isStale());
+        status.put("resultAgeSec", provider.isRunning() ? (now - provider.getLastRefreshed()) / 1000 : null);
+        status.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+        status.put("lastFailure", circuitBreaker.getLastFailure());
+        status.put("retryInSec", circuitBreaker.getRetryAt() > 0 ?
+            Math.max(0, circuitBreaker.getRetryAt() - now) / 1000 : null);
+        return status;
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import bisq.price.util.Hex;
+import bisq.price.util.HttpClient;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.net.URI;
+
+import java.nio.charset.StandardCharsets;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replicates the results of all {@link PriceProvider}s from one elected pricenode, the
+ * leader, to any number of followers, such that adding nodes adds read capacity without
+ * adding upstream requests, and such that all nodes serve the same data.
+ * <p>
+ * Replication is enabled by listing the base URLs of all nodes, in order of priority,
+ * in the {@value #PEERS_PROPERTY} property, along with the node's own URL in the
+ * {@value #SELF_PROPERTY} property and a secret shared by all nodes in the
+ * {@value #SECRET_PROPERTY} property. A node leads as long as no node of higher
+ * priority is reachable and leading; otherwise it follows the one of highest priority
+ * that is. Only the leader fetches data upstream, see {@link PriceProviderScheduler}.
+ * A node given the {@value #FOLLOW_ONLY_PROPERTY} property, such as one that cannot
+ * serve snapshots, never leads: while no node of higher priority leads, it fetches data
+ * upstream for itself, reporting itself as standalone such that no peer follows it.
+ * <p>
+ * Each time one of its providers refreshes, the leader encodes the results of all
+ * providers into a versioned snapshot, in the same binary form as the
+ * {@link PriceProviderCache}, signed with an HMAC of the shared secret. Followers
+ * long-poll the leader's {@link ReplicationController} for snapshots newer than the one
+ * they have, verify them, and restore each provider whose result changed as if it had
+ * been refreshed at the time the leader refreshed it, stale or not. Without peers, a
+ * node runs standalone and fetches all data itself.
+ */
+@Component
+public class Replication implements SmartLifecycle {
+
+    public enum Role {
+        STANDALONE, LEADER, FOLLOWER
+    }
+
+    static final String PEERS_PROPERTY = "PRICENODE_REPLICATION_PEERS";
+    static final String SELF_PROPERTY = "PRICENODE_REPLICATION_SELF";
+    static final String SECRET_PROPERTY = "PRICENODE_REPLICATION_SECRET";
+    static final String FOLLOW_ONLY_PROPERTY = "PRICENODE_REPLICATION_FOLLOW_ONLY";
+
+    static final String SIGNATURE_HEADER = "X-Pricenode-Signature";
+
+    /**
+     * How long the leader holds a follower's request for a newer snapshot before
+     * answering that there is none, well within the {@link HttpClient}'s read timeout.
+     */
+    static final Duration LONG_POLL_TIMEOUT = Duration.ofSeconds(15);
+
+    private static final Duration PROBE_INTERVAL = Duration.ofSeconds(10);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private static final int MAGIC = 0x42505252; // "BPRR"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final ParameterizedTypeReference<Map<String, Object>> STATUS_TYPE =
+        new ParameterizedTypeReference<Map<String, Object>>() {
+        };
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final List<PriceProvider<?>> providers;
+    private final Map<String, PriceProvider<?>> providersByName = new HashMap<>();
+    private final PriceProviderCache cache;
+    private final HttpClient httpClient;
+
+    private final String self;
+    private final List<String> higherPeers;
+    private final SecretKeySpec secret;
+    private final boolean followOnly;
+
+    private final List<Consumer<Payload>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> takeoverListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Role role;
+    private volatile String leader;
+    private volatile Payload payload;
+    private volatile Thread follower;
+    private volatile boolean running;
+
+    // whether replicating from the current leader failed last time, accessed by the
+    // thread starting this and then only by the follower thread
+    private boolean failing;
+
+    private long version;
+
+    public Replication(List<PriceProvider<?>> providers, PriceProviderCache cache, HttpClient httpClient,
+                       Environment env, MeterRegistry meterRegistry) {
+        this.providers = providers;
+        this.cache = cache;
+        this.httpClient = httpClient;
+
+        List<String> peers = Arrays.stream(env.getProperty(PEERS_PROPERTY, String[].class, new String[0]))
+            .map(Replication::normalize)
+            .filter(peer -> !peer.isEmpty())
+            .collect(Collectors.toList());
+
+        this.followOnly = env.getProperty(FOLLOW_ONLY_PROPERTY, Boolean.class, false);
+
+        if (peers.isEmpty()) {
+            this.self = null;
+            this.higherPeers = new ArrayList<>();
+            this.secret = null;
+            this.role = Role.STANDALONE;
+        } else {
+            this.self = normalize(env.getProperty(SELF_PROPERTY, ""));
+            if (!peers.contains(self))
+                throw new IllegalStateException(SELF_PROPERTY + " must be one of the " + PEERS_PROPERTY);
+
+            String secret = env.getProperty(SECRET_PROPERTY, "");
+            if (secret.isEmpty())
+                throw new IllegalStateException(SECRET_PROPERTY + " must be set along with " + PEERS_PROPERTY);
+
+            this.higherPeers = peers.subList(0, peers.indexOf(self));
+            this.secret = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+            // until elected otherwise, such that a follow-only node logs when it fetches for itself
+            this.role = followOnly ? Role.FOLLOWER : Role.LEADER;
+
+            providers.forEach(p -> {
+                if (providersByName.put(p.getName(), p) != null)
+                    throw new IllegalStateException("more than one provider named " + p.getName());
+                if (!followOnly)
+                    p.addRefreshListener(this::publish);
+            });
+        }
+
+        Gauge.builder("pricenode.replication.leader", this, r -> r.isLeader() ? 1 : 0)
+            .description("Whether this node fetches data upstream rather than from a leader")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return whether this node fetches data from upstream providers, i.e. leads or runs
+     * standalone, rather than following a leader
+     */
+    public boolean isLeader() {
+        return role != Role.FOLLOWER;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * @return the base URL of the node currently leading, or null if running standalone
+     * or fetching for itself while follow-only
+     */
+    public String getLeader() {
+        return leader;
+    }
+
+    /**
+     * @return the most recent snapshot of all providers' results, or null if there is
+     * none yet or this node runs standalone
+     */
+    Payload getPayload() {
+        return payload;
+    }
+
+    /**
+     * Register a listener to be notified of each new snapshot.
+     */
+    void addListener(Consumer<Payload> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Register a listener to be notified each time this node stops following a leader
+     * and starts fetching data upstream itself.
+     */
+    void addTakeoverListener(Runnable listener) {
+        takeoverListeners.add(listener);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (role == Role.STANDALONE)
+            return;
+
+        // find out whom to follow, if anyone, and fetch a first snapshot right away, such
+        // that a follower neither serves empty data nor fetches it upstream on startup
+        String leader = elect();
+        long since = -1;
+        if (leader != null) {
+            follow(leader);
+            try {
+                since = poll(leader, since);
+            } catch (RestClientException | IOException | SecurityException ex) {
+                log.warn("could not replicate from {}, retrying every {}: {}", leader, RETRY_DELAY, ex.toString());
+                failing = true;
+            }
+        } else {
+            lead();
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("replication-");
+        threadFactory.setDaemon(true);
+        String following = leader;
+        long initialSince = since;
+        follower = threadFactory.newThread(() -> run(following, initialSince));
+        follower.start();
+    }
+
+    private void run(String following, long since) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                String leader = elect();
+                if (leader == null) {
+                    lead();
+                    following = null;
+                    failing = false;
+                    Thread.sleep(PROBE_INTERVAL.toMillis());
+                    continue;
+                }
+
+                if (!leader.equals(following)) {
+                    follow(leader);
+                    following = leader;
+                    since = -1;
+                }
+
+                try {
+                    since = poll(leader, since);
+                    if (failing)
+                        log.info("replicating from {} again", leader);
+                    failing = false;
+                } catch (RestClientException | IOException | SecurityException ex) {
+                    // like failed refreshes, only the first of consecutive failures is
+                    // logged as a warning
+                    if (!failing)
+                        log.warn("could not replicate from {}, retrying every {}: {}",
+                            leader, RETRY_DELAY, ex.toString());
+                    else
+                        log.debug("could not replicate from {}: {}", leader, ex.toString());
+                    failing = true;
+                    Thread.sleep(RETRY_DELAY.toMillis());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void lead() {
+        boolean takingOver = role == Role.FOLLOWER;
+        if (followOnly) {
+            if (takingOver)
+                log.info("fetching data upstream, as no peer of higher priority than {} leads", self);
+            leader = null;
+            role = Role.STANDALONE;
+        } else {
+            if (!self.equals(leader))
+                log.info("leading, as no peer of higher priority than {} is", self);
+            leader = self;
+            role = Role.LEADER;
+        }
+
+        if (takingOver)
+            takeoverListeners.forEach(Runnable::run);
+    }
+
+    private void follow(String leader) {
+        log.info("following {}", leader);
+        this.leader = leader;
+        role = Role.FOLLOWER;
+    }
+
+    /**
+     * @return the peer of highest priority that is reachable and leading, or null if
+     * none of higher priority than this node is
+     */
+    private String elect() {
+        for (String peer : higherPeers) {
+            try {
+                URI uri = URI.create(peer + "/replication/status");
+                Map<String, Object> status = httpClient.exchange(RequestEntity.get(uri).build(), STATUS_TYPE).getBody();
+                if (status != null && Role.LEADER.name().equals(status.get("role")))
+                    return peer;
+            } catch (RestClientException ex) {
+                log.debug("peer {} is not reachable: {}", peer, ex.toString());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for a snapshot newer than the given version from the given leader, and
+     * ingest it if there is one.
+     *
+     * @return the version of the ingested snapshot, or the given one if there was none
+     */
+    private long poll(String leader, long since) throws IOException {
+        URI uri = UriComponentsBuilder.fromHttpUrl(leader)
+            .path("/replication/snapshot")
+            .queryParam("since", since)
+            .build()
+            .toUri();
+        ResponseEntity<byte[]> response = httpClient.exchange(RequestEntity.get(uri).build(), byte[].class);
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED || response.getBody() == null)
+            return since;
+
+        byte[] body = response.getBody();
+        if (!MessageDigest.isEqual(sign(body), Hex.decode(response.getHeaders().getFirst(SIGNATURE_HEADER))))
+            throw new SecurityException("snapshot from " + leader + " is not signed with the shared secret");
+
+        return ingest(body, since);
+    }
+
+    /**
+     * Restore each provider whose result in the given snapshot differs from its current
+     * one, unless the snapshot is not newer than the given version.
+     *
+     * @return the version of the given snapshot
+     */
+    private long ingest(byte[] body, long since) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+            throw new IOException("snapshot is not in the expected format");
+
+        long version = in.readLong();
+        if (version <= since) {
+            log.debug("ignoring snapshot version {} as it is not newer than {}", version, since);
+            return since;
+        }
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            long lastRefreshed = in.readLong();
+            boolean stale = in.readBoolean();
+            byte[] result = new byte[in.readInt()];
+            in.readFully(result);
+
+            PriceProvider<?> provider = providersByName.get(name);
+            if (provider == null) {
+                log.debug("ignoring result of {} as there is no such provider here", name);
+                continue;
+            }
+            if (provider.isRunning() && provider.getLastRefreshed() == lastRefreshed && provider.isStale() == stale)
+                continue;
+
+            restore(provider, new DataInputStream(new ByteArrayInputStream(result)), lastRefreshed, stale);
+        }
+
+        log.debug("ingested snapshot version {} from {}", version, leader);
+        return version;
+    }
+
+    private <T> void restore(PriceProvider<T> provider, DataInput in, long lastRefreshed, boolean stale)
+        throws IOException {
+        T result = provider.readResult(in);
+
+        // mirror the leader's view of the provider's health, such that its result is
+        // marked as stale here if and only if it is there
+        if (stale)
+            provider.getCircuitBreaker().recordFailure(new IllegalStateException("stale at " + leader), 0);
+        else
+            provider.getCircuitBreaker().recordSuccess();
+
+        provider.restore(result, lastRefreshed);
+        cache.save(provider);
+    }
+
+    /**
+     * Encode the current results of all providers into a new snapshot, and notify
+     * listeners of it.
+     */
+    private synchronized void publish() {
+        version = Math.max(version + 1, System.currentTimeMillis());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(version);
+
+            List<PriceProvider<?>> running = providers.stream()
+                .filter(PriceProvider::isRunning)
+                .collect(Collectors.toList());
+            out.writeInt(running.size());
+            for (PriceProvider<?> provider : running) {
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                writeResult(provider, new DataOutputStream(result));
+
+                out.writeUTF(provider.getName());
+                out.writeLong(provider.getLastRefreshed());
+                out.writeBoolean(provider.isStale());
+                out.writeInt(result.size());
+                result.writeTo(out);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        byte[] body = bytes.toByteArray();
+        Payload payload = new Payload(version, body, Hex.encode(sign(body)));
+        this.payload = payload;
+        listeners.forEach(l -> l.accept(payload));
+    }
+
+    private static <T> void writeResult(PriceProvider<T> provider, DataOutput out) throws IOException {
+        provider.writeResult(out, provider.get());
+    }
+
+    private byte[] sign(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secret);
+            return mac.doFinal(body);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("could not sign snapshot", ex);
+        }
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread follower = this.follower;
+        if (follower != null)
+            follower.interrupt();
+        this.follower = null;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start before the {@link PriceProviderScheduler}, which needs to know whether to
+     * fetch data upstream.
+     */
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+
+    /**
+     * A signed, versioned snapshot of all providers' results.
+     */
+    static class Payload {
+
+        private final long version;
+        private final byte[] body;
+        private final String signature;
+
+        Payload(long version, byte[] body, String signature) {
+            this.version = version;
+            this.body = body;
+            this.signature = signature;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        String getSignature() {
+            return signature;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the {@link Replication} snapshots of a leading pricenode to its followers, and
+ * each node's replication role to its peers.
+ * <p>
+ * A follower asks for a snapshot newer than the version it has. If there is none yet,
+ * the request is held for up to {@link Replication#LONG_POLL_TIMEOUT}, without holding
+ * up a servlet thread, and answered as soon as the next snapshot is published, or with
+ * 304 Not Modified once the timeout has passed. A node that is not leading answers with
+ * 503 Service Unavailable, prompting the follower to elect a leader anew.
+ */
+@RestController
+class ReplicationController extends PriceController {
+
+    private final Replication replication;
+
+    // held requests along with the version each is waiting to be exceeded
+    private final Map<DeferredResult<ResponseEntity<byte[]>>, Long> waiting = new ConcurrentHashMap<>();
+
+    public ReplicationController(Replication replication) {
+        this.replication = replication;
+        replication.addListener(payload -> waiting.forEach((result, since) -> {
+            if (payload.getVersion() > since)
+                result.setResult(toResponse(payload));
+        }));
+    }
+
+    @GetMapping(path = "/replication/status")
+    public Map<String, Object> getStatus() {
+        Replication.Payload payload = replication.getPayload();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", replication.getRole());
+        status.put("leader", replication.getLeader());
+        status.put("version", payload != null ? payload.getVersion() : null);
+        return status;
+    }
+
+    @GetMapping(path = "/replication/snapshot")
+    public DeferredResult<ResponseEntity<byte[]>> getSnapshot(
+        @RequestParam(value = "since", defaultValue = "-1") long since) {
+
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(
+            Replication.LONG_POLL_TIMEOUT.toMillis(), ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        if (replication.getRole() != Replication.Role.LEADER) {
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+            return result;
+        }
+
+        // register before looking at the current snapshot, such that a snapshot
+        // published in between is not missed
+        waiting.put(result, since);
+        result.onCompletion(() -> waiting.remove(result));
+
+        Replication.Payload payload = replication.getPayload();
+        if (payload != null && payload.getVersion() > since)
+            result.setResult(toResponse(payload));
+
+        return result;
+    }
+
+    private static ResponseEntity<byte[]> toResponse(Replication.Payload payload) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(Replication.SIGNATURE_HEADER, payload.getSignature())
+            .body(payload.getBody());
+    }
+}
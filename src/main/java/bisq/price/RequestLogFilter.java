@@ -0,0 +1,206 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs incoming requests without doing any logging I/O on request threads. Each request
+ * merely offers a small record to a bounded queue (dropping it if the queue is full),
+ * from which a single background thread drains records in batches.
+ * <p>
+ * Rather than logging one line per request, the background thread counts requests by
+ * path, User-Agent and Bisq version, and logs a summary of those counts every
+ * {@link #SUMMARY_INTERVAL}. As clients choose all of these, each is counted for at most
+ * {@value #MAX_DISTINCT_KEYS} distinct values per summary, any others being counted as
+ * "other", such that clients cannot grow the counts without bound. Individual requests
+ * are logged for one in every N requests only, where N is configured with the
+ * {@value #SAMPLE_RATE_PROPERTY} property (100 by default; 1 logs every request, 0
+ * none).
+ */
+@Component
+class RequestLogFilter extends OncePerRequestFilter implements DisposableBean {
+
+    static final String SAMPLE_RATE_PROPERTY = "PRICENODE_REQUEST_LOG_SAMPLE_RATE";
+
+    private static final int DEFAULT_SAMPLE_RATE = 100;
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_DISTINCT_KEYS = 64;
+    private static final Duration SUMMARY_INTERVAL = Duration.ofMinutes(10);
+
+    // Bisq clients identify themselves with User-Agent headers like "bisq/0.8.0"
+    private static final Pattern BISQ_VERSION = Pattern.compile("(?i)\\bbisq/(\\S+)");
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final int sampleRate;
+    private final Thread writer;
+
+    // only accessed by the writer thread
+    private final Map<String, Long> requestsByPath = new HashMap<>();
+    private final Map<String, Long> requestsByUserAgent = new HashMap<>();
+    private final Map<String, Long> requestsByBisqVersion = new HashMap<>();
+    private long requests;
+    private long summaryDue = System.nanoTime() + SUMMARY_INTERVAL.toNanos();
+
+    public RequestLogFilter(Environment env) {
+        this.sampleRate = env.getProperty(SAMPLE_RATE_PROPERTY, Integer.class, DEFAULT_SAMPLE_RATE);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("request-log-");
+        threadFactory.setDaemon(true);
+        this.writer = threadFactory.newThread(this::drain);
+        this.writer.start();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Entry entry = new Entry(request.getServletPath(), request.getHeader("User-Agent"),
+                response.getStatus(), System.nanoTime() - start);
+            if (!queue.offer(entry))
+                dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long untilSummary = summaryDue - System.nanoTime();
+                Entry first = queue.poll(Math.max(untilSummary, 0), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    batch.forEach(this::record);
+                    batch.clear();
+                }
+                if (System.nanoTime() - summaryDue >= 0) {
+                    logSummary();
+                    summaryDue = System.nanoTime() + SUMMARY_INTERVAL.toNanos();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                log.warn("could not log requests", ex);
+            }
+        }
+    }
+
+    private void record(Entry entry) {
+        requests++;
+        count(requestsByPath, entry.path);
+
+        String userAgent = entry.userAgent != null ? entry.userAgent : "none";
+        count(requestsByUserAgent, userAgent);
+
+        Matcher bisqVersion = BISQ_VERSION.matcher(userAgent);
+        count(requestsByBisqVersion, bisqVersion.find() ? bisqVersion.group(1) : "none");
+
+        if (sampleRate > 0 && requests % sampleRate == 0)
+            log.info("Incoming {} request from: {} ({}, {} ms; 1 in {} requests logged)",
+                entry.path, entry.userAgent, entry.status, entry.nanos / 1_000_000, sampleRate);
+    }
+
+    private static void count(Map<String, Long> counts, String key) {
+        if (counts.size() < MAX_DISTINCT_KEYS || counts.containsKey(key))
+            counts.merge(key, 1L, Long::sum);
+        else
+            counts.merge("other", 1L, Long::sum);
+    }
+
+    private void logSummary() {
+        long droppedRequests = dropped.getAndSet(0);
+        if (requests == 0 && droppedRequests == 0)
+            return;
+
+        log.info("{} requests in the last {} ({} not counted as the log queue was full); by path: {}; " +
+                "by Bisq version: {}; by User-Agent: {}",
+            requests, SUMMARY_INTERVAL, droppedRequests, mostFrequentFirst(requestsByPath),
+            mostFrequentFirst(requestsByBisqVersion), mostFrequentFirst(requestsByUserAgent));
+
+        requests = 0;
+        requestsByPath.clear();
+        requestsByUserAgent.clear();
+        requestsByBisqVersion.clear();
+    }
+
+    private static String mostFrequentFirst(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+            .map(e -> e.getKey() + "=" + e.getValue())
+            .collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    @Override
+    public void destroy() {
+        writer.interrupt();
+    }
+
+
+    private static class Entry {
+
+        private final String path;
+        private final String userAgent;
+        private final int status;
+        private final long nanos;
+
+        Entry(String path, String userAgent, int status, long nanos) {
+            this.path = path;
+            this.userAgent = userAgent;
+            this.status = status;
+            this.nanos = nanos;
+        }
+    }
+}
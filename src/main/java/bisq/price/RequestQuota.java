@@ -0,0 +1,131 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps count of the requests made to an upstream API with a monthly request quota, and
+ * paces them such that the quota is never exceeded.
+ * <p>
+ * Every request must first be {@linkplain #acquire() acquired}, which fails once the
+ * quota for the current (UTC) calendar month is used up. To not run out of requests
+ * before the month ends, refreshes should also be delayed by at least
+ * {@link #getMinDelay()}, i.e. the time left in the month spread evenly over the
+ * requests left. Requests saved while refreshing less often can thus be spent later on
+ * refreshing more often. The count is persisted to the {@link PriceProviderCache}
+ * directory, such that restarts do not reset it.
+ */
+public class RequestQuota {
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final Clock clock = Clock.systemUTC();
+    private final Path file;
+    private final long monthlyQuota;
+
+    private YearMonth month;
+    private long used;
+
+    /**
+     * @param name a name identifying the quota, unique among all quotas
+     */
+    public RequestQuota(Environment env, String name, long monthlyQuota) {
+        this.file = PriceProviderCache.directory(env).resolve(name + "-requests.txt");
+        this.monthlyQuota = monthlyQuota;
+        this.month = YearMonth.now(clock);
+        load();
+    }
+
+    /**
+     * Count a request about to be made.
+     *
+     * @throws IllegalStateException if this month's quota is used up
+     */
+    public synchronized void acquire() {
+        rollOver();
+        if (used >= monthlyQuota)
+            throw new IllegalStateException("monthly quota of " + monthlyQuota + " requests is used up");
+
+        used++;
+        save();
+    }
+
+    /**
+     * @return the minimum delay until the next request that allows to make a request at
+     * that pace until the end of the month without exceeding the quota
+     */
+    public synchronized Duration getMinDelay() {
+        rollOver();
+        Duration untilNextMonth = Duration.between(Instant.now(clock),
+            month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+
+        long remaining = monthlyQuota - used;
+        return remaining > 0 ? untilNextMonth.dividedBy(remaining) : untilNextMonth;
+    }
+
+    private void rollOver() {
+        YearMonth now = YearMonth.now(clock);
+        if (!now.equals(month)) {
+            month = now;
+            used = 0;
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file))
+            return;
+
+        try {
+            String[] fields = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim().split(" ");
+            if (YearMonth.parse(fields[0]).equals(month))
+                used = Long.parseLong(fields[1]);
+            log.info("{} of {} requests used in {}", used, monthlyQuota, month);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("could not read request count from {}: {}", file, ex.toString());
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(tmp, (month + " " + used).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("could not write request count to {}: {}", file, ex.toString());
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price;
+
+import bisq.price.mining.MiningComponents;
+import bisq.price.spot.SpotComponents;
+import bisq.price.util.UtilComponents;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.ValueConstants;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import io.prometheus.client.exporter.common.TextFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the pricenode in a slim mode, for hosts short on memory: rather than Spring Boot
+ * with classpath scanning, auto-configuration, actuator and embedded Tomcat, a plain
+ * Spring context of explicitly listed components is served by the JDK's built-in HTTP
+ * server, whose single selector thread multiplexes all connections and hands complete
+ * requests to a small pool of handler threads.
+ * <p>
+ * The server listens right away and answers 503 Service Unavailable until the
+ * {@link PriceProviderScheduler} has completed its initial refreshes, rather than only
+ * listening thereafter. It serves the {@link GetMapping} methods of all
+ * {@link RestController}s that take {@link RequestParam}s and {@link RequestHeader}s of
+ * simple types and return a {@link ResponseEntity}, a string or a JSON-serializable
+ * object, plus Prometheus metrics at {@code /prometheus}. Streaming and long-polling
+ * endpoints are not served, nor are requests logged by the {@link RequestLogFilter}:
+ * run the full mode for these. As followers long-poll their leader for snapshots, a slim
+ * node is follow-only in {@link Replication}, see
+ * {@link Replication#FOLLOW_ONLY_PROPERTY}.
+ * <p>
+ * With {@value #REPORT_STARTUP_OPTION}, the pricenode exits once started, after
+ * printing its startup time and resident set size, e.g. in order to track them or to
+ * record the classes loaded at startup for a class data sharing archive. It then skips
+ * the initial refreshes of the {@link PriceProviderScheduler}, such that no upstream is
+ * contacted and the times reported are those of the pricenode alone. Startup failures
+ * propagate, such that the process exits with a non-zero status.
+ */
+class SlimServer {
+
+    static final String SLIM_OPTION = "--slim";
+    static final String REPORT_STARTUP_PROPERTY = "report-startup";
+    static final String REPORT_STARTUP_OPTION = "--" + REPORT_STARTUP_PROPERTY;
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int HANDLER_THREADS = 4;
+    private static final int BACKLOG = 128;
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private volatile Map<String, Route> routes = Collections.emptyMap();
+
+    void run(String[] args, Properties bisqProperties) throws IOException {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        ConfigurableEnvironment env = context.getEnvironment();
+        env.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        env.getPropertySources().addFirst(new MapPropertySource("slim",
+            Collections.singletonMap(Replication.FOLLOW_ONLY_PROPERTY, true)));
+        env.getPropertySources().addLast(new PropertiesPropertySource("bisqProperties", bisqProperties));
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        context.getBeanFactory().registerSingleton("objectMapper", mapper);
+        context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+        context.register(Components.class);
+
+        ExecutorService handlers = Executors.newFixedThreadPool(HANDLER_THREADS, daemonThreads("http-"));
+        HttpServer server = HttpServer.create(
+            new InetSocketAddress(env.getProperty("server.port", Integer.class, DEFAULT_PORT)), BACKLOG);
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+        long listening = uptime();
+        log.info("listening on port {}", server.getAddress().getPort());
+
+        try {
+            context.refresh();
+        } catch (RuntimeException ex) {
+            // the server's dispatcher thread would otherwise keep the JVM alive
+            server.stop(0);
+            handlers.shutdownNow();
+            throw ex;
+        }
+
+        Map<String, Route> routes = new HashMap<>();
+        context.getBeansWithAnnotation(RestController.class).values().forEach(controller -> {
+            for (Method method : controller.getClass().getMethods()) {
+                GetMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, GetMapping.class);
+                if (mapping != null)
+                    Route.of(controller, method, mapper).ifPresent(route -> {
+                        for (String path : mapping.path())
+                            routes.put(path, route);
+                    });
+            }
+        });
+        routes.put("/prometheus", (exchange, params) -> ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(TextFormat.CONTENT_TYPE_004))
+            .body(meterRegistry.scrape().getBytes(StandardCharsets.UTF_8)));
+        this.routes = routes;
+        long ready = uptime();
+        log.info("started in {} ms, listening after {} ms, resident set size {}",
+            ready, listening, residentSetSize());
+
+        if (Arrays.asList(args).contains(REPORT_STARTUP_OPTION)) {
+            System.out.printf("startup: listening after %d ms, ready after %d ms, resident set size %s%n",
+                listening, ready, residentSetSize());
+            server.stop(0);
+            handlers.shutdownNow();
+            context.close();
+            return;
+        }
+
+        context.registerShutdownHook();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Route route = routes.get(exchange.getRequestURI().getPath());
+            ResponseEntity<?> response;
+            if (routes.isEmpty())
+                response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("starting up");
+            else if (route == null)
+                response = ResponseEntity.status(HttpStatus.NOT_FOUND).body("not found");
+            else if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod()))
+                response = ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).body("method not allowed");
+            else
+                response = route.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+            respond(exchange, response);
+        } catch (Exception ex) {
+            log.warn("failed to handle request for {}", exchange.getRequestURI(), ex);
+            respond(exchange, ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, ResponseEntity<?> response) throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        headers.forEach((name, values) -> exchange.getResponseHeaders().put(name, values));
+
+        // answer conditional requests like Spring MVC does for responses with an ETag
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        if (headers.getETag() != null && headers.getETag().equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(HttpStatus.NOT_MODIFIED.value(), -1);
+            return;
+        }
+
+        byte[] body = response.getBody() instanceof byte[]
+            ? (byte[]) response.getBody()
+            : String.valueOf(response.getBody()).getBytes(StandardCharsets.UTF_8);
+        if (!(response.getBody() instanceof byte[]) && headers.getContentType() == null)
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, TEXT_PLAIN_UTF8.toString());
+
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(response.getStatusCodeValue(), head ? -1 : body.length);
+        if (!head) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        if (!StringUtils.hasLength(query))
+            return Collections.emptyMap();
+
+        Map<String, String> params = new HashMap<>();
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? param : param.substring(0, eq), "UTF-8");
+            String value = eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), "UTF-8");
+            params.putIfAbsent(name, value);
+        }
+        return params;
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * @return the resident set size of this process as reported by Linux, or "unknown"
+     * elsewhere
+     */
+    private static String residentSetSize() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status))
+            return "unknown";
+
+        try {
+            return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> line.substring("VmRSS:".length()).trim())
+                .findFirst()
+                .orElse("unknown");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String threadNamePrefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+
+    /**
+     * All components of the pricenode other than those only needed in the full mode.
+     */
+    @Import({
+        PriceProviderCache.class,
+        PriceProviderScheduler.class,
+        ProviderStatusController.class,
+        Replication.class,
+        ReplicationController.class,
+        SnapshotController.class,
+        SnapshotService.class,
+        MiningComponents.class,
+        SpotComponents.class,
+        UtilComponents.class
+    })
+    static class Components {
+    }
+
+
+    /**
+     * Serves one {@link GetMapping} method of a controller.
+     */
+    @FunctionalInterface
+    private interface Route {
+
+        ResponseEntity<?> handle(HttpExchange exchange, Map<String, String> params) throws Exception;
+
+        /**
+         * @return a route invoking the given method, or none if any of the method's
+         * parameters or its return type are not supported
+         */
+        static Optional<Route> of(Object controller, Method method, ObjectMapper mapper) {
+            Class<?> returnType = method.getReturnType();
+            if (returnType.getName().startsWith("org.springframework.web."))
+                return Optional.empty(); // e.g. SseEmitter or DeferredResult
+
+            Parameter[] parameters = method.getParameters();
+            Binder[] binders = new Binder[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                Binder binder = Binder.of(parameters[i]);
+                if (binder == null)
+                    return Optional.empty();
+                binders[i] = binder;
+            }
+            method.setAccessible(true);
+
+            return Optional.of((exchange, params) -> {
+                Object[] values = new Object[binders.length];
+                for (int i = 0; i < binders.length; i++) {
+                    try {
+                        values[i] = binders[i].bind(exchange, params);
+                    } catch (IllegalArgumentException ex) {
+                        return ResponseEntity.badRequest().body(ex.getMessage());
+                    }
+                }
+
+                Object result;
+                try {
+                    result = method.invoke(controller, values);
+                } catch (InvocationTargetException ex) {
+                    if (ex.getCause() instanceof Exception)
+                        throw (Exception) ex.getCause();
+                    throw ex;
+                }
+
+                if (result instanceof ResponseEntity)
+                    return (ResponseEntity<?>) result;
+                if (result instanceof String)
+                    return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(result);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .body(mapper.writeValueAsBytes(result));
+            });
+        }
+    }
+
+
+    /**
+     * Binds a request parameter or header to a method parameter.
+     */
+    @FunctionalInterface
+    private interface Binder {
+
+        Object bind(HttpExchange exchange, Map<String, String> params);
+
+        /**
+         * @return a binder for the given parameter, or null if it is not supported
+         */
+        static Binder of(Parameter parameter) {
+            RequestParam param = AnnotatedElementUtils.findMergedAnnotation(parameter, RequestParam.class);
+            RequestHeader header = AnnotatedElementUtils.findMergedAnnotation(parameter, RequestHeader.class);
+            Class<?> type = parameter.getType();
+
+            if (header != null && type == String.class)
+                return (exchange, params) -> valueOf(exchange.getRequestHeaders().getFirst(header.name()),
+                    header.name(), header.required(), header.defaultValue(), type);
+
+            if (param != null && (type == String.class || type == Long.class || type == long.class
+                || type == Integer.class || type == int.class))
+                return (exchange, params) -> valueOf(params.get(param.name()),
+                    param.name(), param.required(), param.defaultValue(), type);
+
+            return null;
+        }
+
+        static Object valueOf(String value, String name, boolean required, String defaultValue, Class<?> type) {
+            if (value == null && !ValueConstants.DEFAULT_NONE.equals(defaultValue))
+                value = defaultValue;
+            if (value == null) {
+                if (required)
+                    throw new IllegalArgumentException("missing parameter " + name);
+                return null;
+            }
+
+            try {
+                if (type == Long.class || type == long.class)
+                    return Long.valueOf(value);
+                if (type == Integer.class || type == int.class)
+                    return Integer.valueOf(value);
+                return value;
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("invalid parameter " + name + ": " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An immutable, pre-serialized JSON representation of data served by a
+ * {@link PriceController}. Snapshots are built once each time the underlying
+ * {@link PriceProvider} data is refreshed, such that serving a request amounts to
+ * nothing more than writing the already-serialized (and, where the client accepts it,
+ * already-compressed) bytes to the response. The compressed form is only built once
+ * first asked for, as snapshots built on demand, e.g. of a subset of the data, may
+ * never be.
+ */
+public final class Snapshot {
+
+    private final byte[] json;
+    private final String etag;
+    private final String gzippedEtag;
+
+    private volatile byte[] gzippedJson;
+
+    private Snapshot(byte[] json) {
+        String hash = DigestUtils.md5DigestAsHex(json);
+        this.json = json;
+        this.etag = "\"" + hash + "\"";
+        this.gzippedEtag = "\"" + hash + "-gzip\"";
+    }
+
+    public static Snapshot of(ObjectMapper mapper, Object value) {
+        try {
+            return new Snapshot(mapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("could not serialize snapshot", ex);
+        }
+    }
+
+    /**
+     * @return the serialized JSON bytes; callers must not modify the returned array
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * @return the gzip-compressed JSON bytes; callers must not modify the returned array
+     */
+    public byte[] getGzippedJson() {
+        // racing threads may each compress the json, which is harmless
+        byte[] gzippedJson = this.gzippedJson;
+        if (gzippedJson == null)
+            this.gzippedJson = gzippedJson = gzip(json);
+        return gzippedJson;
+    }
+
+    /**
+     * @return a strong, quoted entity tag derived from the content of this snapshot
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return the entity tag of the gzip-compressed representation of this snapshot,
+     * which as a distinct representation must not share the uncompressed one's tag
+     */
+    public String getGzippedEtag() {
+        return gzippedEtag;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+class SnapshotController extends PriceController {
+
+    private final SnapshotService snapshotService;
+
+    public SnapshotController(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Serve the given parts, by default all of them (see
+     * {@link SnapshotService#getPartNames()}), in a single response, e.g.
+     * {@code /snapshot?include=prices,fees,version&currencies=USD,EUR}. Parts broken down
+     * by currency are restricted to the given currencies, if any.
+     */
+    @GetMapping(path = "/snapshot")
+    public ResponseEntity<byte[]> getSnapshot(
+        @RequestParam(name = "include", required = false) String include,
+        @RequestParam(name = "currencies", required = false) String currencies,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        Snapshot snapshot;
+        try {
+            snapshot = snapshotService.getSnapshot(split(include, false), split(currencies, true));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body((ex.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return respond(snapshot, acceptEncoding);
+    }
+
+    private static Set<String> split(String list, boolean upperCase) {
+        if (list == null)
+            return null;
+
+        return Arrays.stream(list.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .map(s -> upperCase ? s.toUpperCase() : s.toLowerCase())
+            .collect(Collectors.toSet());
+    }
+}
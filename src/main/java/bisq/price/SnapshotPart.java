@@ -0,0 +1,59 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import java.util.Set;
+
+/**
+ * A part of the data a pricenode serves, e.g. its market prices or its version, that
+ * clients may fetch along with other parts in a single request to the
+ * {@link SnapshotController}, rather than in one request per part.
+ */
+public interface SnapshotPart {
+
+    /**
+     * @return the name by which clients ask for this part, and under which it appears
+     * in the combined snapshot
+     */
+    String getPartName();
+
+    /**
+     * @return an immutable view of this part's current data, such that views of all
+     * parts taken at the same time can be rendered consistently with each other later
+     */
+    View getView();
+
+    /**
+     * Register a listener to be notified each time this part's data changes; parts
+     * whose data never changes need not do anything.
+     */
+    void addUpdateListener(Runnable listener);
+
+
+    @FunctionalInterface
+    interface View {
+
+        /**
+         * @param currencies the codes of the currencies to restrict data to, or null for
+         *                   all currencies; ignored by parts not broken down by currency
+         * @return the data to serialize as this part
+         */
+        Object render(Set<String> currencies);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Combines any subset of all {@link SnapshotPart}s into a single, consistent and
+ * versioned {@link Snapshot}, e.g. in order to let clients on high-latency connections
+ * such as Tor fetch prices, fees and version in one round trip.
+ * <p>
+ * Each time any part changes, views of all parts are taken together and the version is
+ * increased, such that all combinations rendered from them are consistent with each
+ * other. Rendered combinations are cached until the next change, up to
+ * {@value #MAX_CACHED} of them, the most common one, i.e. that of all parts and all
+ * currencies, being rendered right away.
+ */
+@Service
+class SnapshotService {
+
+    static final int MAX_CACHED = 64;
+
+    private final ObjectMapper mapper;
+    private final Map<String, SnapshotPart> parts = new TreeMap<>();
+
+    private long version = System.currentTimeMillis();
+    private volatile Views views;
+
+    public SnapshotService(List<SnapshotPart> parts, ObjectMapper mapper) {
+        this.mapper = mapper;
+        parts.forEach(p -> {
+            if (this.parts.put(p.getPartName(), p) != null)
+                throw new IllegalStateException("more than one snapshot part named " + p.getPartName());
+            p.addUpdateListener(this::update);
+        });
+        update();
+    }
+
+    /**
+     * @return the names of all parts, sorted
+     */
+    Set<String> getPartNames() {
+        return Collections.unmodifiableSet(parts.keySet());
+    }
+
+    /**
+     * @param include    the names of the parts to include, or null for all of them
+     * @param currencies the codes of the currencies to restrict data to, or null for all
+     *                   currencies
+     * @return the current snapshot of the given parts and currencies
+     * @throws IllegalArgumentException if any of the given parts does not exist
+     */
+    Snapshot getSnapshot(Set<String> include, Set<String> currencies) {
+        SortedSet<String> partNames = new TreeSet<>(include != null ? include : parts.keySet());
+        if (!parts.keySet().containsAll(partNames)) {
+            partNames.removeAll(parts.keySet());
+            throw new IllegalArgumentException("no such part(s): " + String.join(", ", partNames));
+        }
+
+        return views.get(partNames, currencies != null ? new TreeSet<>(currencies) : null);
+    }
+
+    private synchronized void update() {
+        Map<String, SnapshotPart.View> partViews = new TreeMap<>();
+        parts.forEach((name, part) -> partViews.put(name, part.getView()));
+
+        Views views = new Views(++version, partViews);
+        views.get(parts.keySet(), null);
+        this.views = views;
+    }
+
+
+    /**
+     * Views of all parts as of a given version, along with the snapshots rendered from
+     * them so far.
+     */
+    private class Views {
+
+        private final long version;
+        private final Map<String, SnapshotPart.View> partViews;
+
+        private final Map<String, Snapshot> rendered = new RenderedSnapshots();
+
+        Views(long version, Map<String, SnapshotPart.View> partViews) {
+            this.version = version;
+            this.partViews = partViews;
+        }
+
+        Snapshot get(Set<String> partNames, SortedSet<String> currencies) {
+            String key = partNames + "/" + currencies;
+            synchronized (rendered) {
+                Snapshot snapshot = rendered.get(key);
+                if (snapshot == null) {
+                    snapshot = render(partNames, currencies);
+                    rendered.put(key, snapshot);
+                }
+                return snapshot;
+            }
+        }
+
+        private Snapshot render(Set<String> partNames, Set<String> currencies) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("snapshotVersion", version);
+            if (currencies != null)
+                map.put("currencies", currencies);
+            partNames.forEach(name -> map.put(name, partViews.get(name).render(currencies)));
+            return Snapshot.of(mapper, map);
+        }
+    }
+
+
+    /**
+     * Snapshots rendered by key, evicting the least recently used one once there are
+     * more than {@link #MAX_CACHED}.
+     */
+    private static class RenderedSnapshots extends LinkedHashMap<String, Snapshot> {
+
+        private static final long serialVersionUID = 1L;
+
+        RenderedSnapshots() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+            return size() > MAX_CACHED;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price;
+
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+
+import java.time.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes price data to clients subscribed via server-sent events, as an alternative to
+ * polling. Each new subscriber first receives the complete current data as a snapshot
+ * event; thereafter, each refresh is pushed to all subscribers as a delta event
+ * containing only what changed, or as another snapshot event if no delta is available.
+ * <p>
+ * Event payloads are serialized once per refresh, not once per subscriber, and only
+ * while there are subscribers; in compact rather than indented form, as server-sent
+ * event data may not span lines. Each subscriber has its own queue of events, sent in
+ * order from a small pool of threads, shared by all broadcasters and only started with
+ * the first subscription, such that neither provider refreshes nor other subscribers
+ * wait for a slow subscriber. A subscriber falling more than
+ * {@value #MAX_PENDING_EVENTS} events behind is dropped, and may subscribe again to
+ * catch up with a snapshot.
+ */
+public class UpdateBroadcaster {
+
+    private static final long SUBSCRIPTION_TIMEOUT = Duration.ofHours(1).toMillis();
+
+    private static final int SENDER_THREADS = 4;
+    private static final int MAX_PENDING_EVENTS = 8;
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final ObjectWriter writer;
+    private final String snapshotEvent;
+    private final String deltaEvent;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private Supplier<?> snapshot;
+    private byte[] snapshotJson;
+
+    public UpdateBroadcaster(ObjectMapper mapper, String snapshotEvent, String deltaEvent) {
+        this.writer = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.snapshotEvent = snapshotEvent;
+        this.deltaEvent = deltaEvent;
+    }
+
+    /**
+     * Subscribe a new client, which immediately receives the most recently published
+     * snapshot, if any.
+     */
+    public synchronized SseEmitter subscribe() {
+        Subscriber subscriber = new Subscriber();
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // queued under the same lock as publish() to guarantee the snapshot is never
+        // sent after a delta that is more recent than it
+        if (snapshot != null) {
+            if (snapshotJson == null)
+                snapshotJson = serialize(snapshot.get());
+            subscriber.enqueue(snapshotEvent, snapshotJson);
+        }
+
+        return subscriber.emitter;
+    }
+
+    /**
+     * Publish new data to all subscribers. Neither argument is evaluated, let alone
+     * serialized, unless there are subscribers to send it to.
+     *
+     * @param snapshot the complete current data, sent to subscribers joining later
+     * @param delta    the changes since the previously published data, or {@code null}
+     *                 to push the complete snapshot to existing subscribers instead
+     */
+    public synchronized void publish(Supplier<?> snapshot, Supplier<?> delta) {
+        this.snapshot = snapshot;
+        this.snapshotJson = null;
+
+        if (subscribers.isEmpty())
+            return;
+
+        String event;
+        byte[] json;
+        if (delta != null) {
+            event = deltaEvent;
+            json = serialize(delta.get());
+        } else {
+            event = snapshotEvent;
+            json = snapshotJson = serialize(snapshot.get());
+        }
+        subscribers.forEach(s -> s.enqueue(event, json));
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("could not serialize " + snapshotEvent + " update", ex);
+        }
+    }
+
+    /**
+     * A subscriber's emitter along with the events queued for it. At most one sender
+     * thread at a time drains the queue, such that events are sent in order.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter = new SseEmitter(SUBSCRIPTION_TIMEOUT);
+
+        // guarded by this; non-empty only while draining
+        private final Queue<SseEventBuilder> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean lagging;
+
+        void enqueue(String event, byte[] json) {
+            synchronized (this) {
+                if (lagging)
+                    return;
+
+                if (pending.size() >= MAX_PENDING_EVENTS) {
+                    // the emitter is completed by the draining thread, as completing it here
+                    // would wait for the send that keeps it from catching up
+                    log.debug("dropping subscriber {} events behind", pending.size());
+                    lagging = true;
+                    pending.clear();
+                    subscribers.remove(this);
+                    return;
+                }
+
+                pending.add(SseEmitter.event().name(event).data(json, MediaType.APPLICATION_JSON));
+                if (draining)
+                    return;
+                draining = true;
+            }
+            Sender.POOL.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                SseEventBuilder next;
+                synchronized (this) {
+                    next = pending.poll();
+                    if (next == null) {
+                        draining = false;
+                        if (lagging)
+                            emitter.complete();
+                        return;
+                    }
+                }
+
+                try {
+                    emitter.send(next);
+                } catch (IOException | IllegalStateException ex) {
+                    // the client has gone away; the container will complete the emitter
+                    log.debug("dropping subscriber: {}", ex.toString());
+                    synchronized (this) {
+                        lagging = true;
+                        pending.clear();
+                        draining = false;
+                    }
+                    subscribers.remove(this);
+                    return;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Holds the sender threads, created once the first subscriber is sent an event.
+     */
+    private static class Sender {
+
+        private static final ExecutorService POOL = Executors.newFixedThreadPool(SENDER_THREADS, daemonThreads());
+
+        private static CustomizableThreadFactory daemonThreads() {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sse-push-");
+            threadFactory.setDaemon(true);
+            return threadFactory;
+        }
+    }
+}
@@ -17,19 +17,34 @@
 
 package bisq.price.mining;
 
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
 /**
- * A value object representing the mining fee rate for a given base currency.
+ * A value object representing the mining fee rate for a given base currency, along with
+ * estimates for several confirmation targets where the provider makes them.
  */
 public class FeeRate {
 
     private final String currency;
     private final long price;
     private final long timestamp;
+    private final SortedMap<Integer, Long> estimates;
 
     public FeeRate(String currency, long price, long timestamp) {
+        this(currency, price, timestamp, Collections.emptySortedMap());
+    }
+
+    /**
+     * @param estimates the estimated fee rate, in the same unit as the price, for a
+     *                  transaction to confirm within each given number of blocks
+     */
+    public FeeRate(String currency, long price, long timestamp, SortedMap<Integer, Long> estimates) {
         this.currency = currency;
         this.price = price;
         this.timestamp = timestamp;
+        this.estimates = Collections.unmodifiableSortedMap(new TreeMap<>(estimates));
     }
 
     public String getCurrency() {
@@ -43,4 +58,12 @@ public class FeeRate {
     public long getTimestamp() {
         return timestamp;
     }
+
+    /**
+     * @return the estimated fee rate by confirmation target in blocks, or an empty map if
+     * the provider does not make estimates for several targets
+     */
+    public SortedMap<Integer, Long> getEstimates() {
+        return estimates;
+    }
 }
@@ -19,10 +19,13 @@ package bisq.price.mining;
 
 import bisq.price.PriceController;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.Map;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 class FeeRateController extends PriceController {
@@ -34,7 +37,30 @@ class FeeRateController extends PriceController {
     }
 
     @GetMapping(path = "/getFees")
-    public Map<String, Object> getFees() {
-        return feeRateService.getFees();
+    public ResponseEntity<byte[]> getFees(
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return respond(feeRateService.getFees(), acceptEncoding);
+    }
+
+    @GetMapping(path = "/fees/estimates")
+    public ResponseEntity<byte[]> getFeeEstimates(
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return respond(feeRateService.getEstimates(), acceptEncoding);
+    }
+
+    /**
+     * Query the recent fee rates of the given currency, or of all currencies whose
+     * providers keep a history of them, along with their moving average and percentiles.
+     */
+    @GetMapping(path = "/fees/history")
+    public ResponseEntity<byte[]> getFeeHistory(
+        @RequestParam(name = "currency", required = false) String currency,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return respond(feeRateService.getHistory(currency != null ? currency.toUpperCase() : null), acceptEncoding);
+    }
+
+    @GetMapping(path = "/fees/stream")
+    public SseEmitter streamFees() {
+        return feeRateService.subscribe();
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining;
+
+/**
+ * A fixed-capacity ring buffer of the most recent fee rates of one currency, which
+ * keeps an exponentially weighted moving average and answers percentile queries over
+ * the fee rates it holds.
+ * <p>
+ * Fee rates are counted in a Fenwick tree over the bounded range of fee rates from zero
+ * to a given maximum, such that recording a fee rate and querying a percentile each
+ * take time logarithmic in that maximum. All memory is allocated up front: recording
+ * fee rates allocates nothing. Fee rates beyond the maximum are counted as the maximum.
+ * All timestamps are in epoch seconds.
+ * <p>
+ * Thread-safe. Synchronize on the history to read several values consistently.
+ */
+public final class FeeRateHistory {
+
+    private final long[] timestamps;
+    private final long[] feeRates;
+    private final int[] counts; // the Fenwick tree, indexed by fee rate plus one
+    private final double ewmaWeight;
+
+    private int next;
+    private int size;
+    private double ewma;
+
+    /**
+     * @param capacity   the number of most recent fee rates to hold
+     * @param maxFeeRate the highest fee rate to tell apart from others
+     * @param ewmaWeight the weight of each new fee rate in the moving average, between
+     *                   zero and one
+     */
+    public FeeRateHistory(int capacity, long maxFeeRate, double ewmaWeight) {
+        this.timestamps = new long[capacity];
+        this.feeRates = new long[capacity];
+        this.counts = new int[Math.toIntExact(maxFeeRate) + 2];
+        this.ewmaWeight = ewmaWeight;
+    }
+
+    /**
+     * Append the given fee rate, evicting the oldest one if at capacity.
+     */
+    public synchronized void record(long timestamp, long feeRate) {
+        feeRate = Math.min(Math.max(feeRate, 0), counts.length - 2);
+
+        if (size == feeRates.length)
+            count(feeRates[next], -1);
+        else
+            size++;
+
+        timestamps[next] = timestamp;
+        feeRates[next] = feeRate;
+        next = (next + 1) % feeRates.length;
+        count(feeRate, 1);
+
+        ewma = size == 1 ? feeRate : ewma + ewmaWeight * (feeRate - ewma);
+    }
+
+    /**
+     * @return the exponentially weighted moving average of all fee rates recorded, or
+     * zero if none were
+     */
+    public synchronized double getEwma() {
+        return ewma;
+    }
+
+    /**
+     * @param percentile between zero and 100
+     * @return the lowest fee rate held that is not lower than the given percentage of
+     * all fee rates held, or zero if none are held
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (size == 0)
+            return 0;
+
+        // the nearest rank, found by descending the Fenwick tree from its root
+        int rank = Math.max((int) Math.ceil(percentile / 100 * size), 1);
+        int index = 0;
+        for (int step = Integer.highestOneBit(counts.length - 1); step > 0; step >>= 1) {
+            if (index + step < counts.length && counts[index + step] < rank) {
+                index += step;
+                rank -= counts[index];
+            }
+        }
+        return index; // the fee rate at tree index + 1
+    }
+
+    /**
+     * @return the number of fee rates held
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Pass each fee rate held to the given consumer, oldest first.
+     */
+    public synchronized void forEach(SampleConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int index = (next - size + i + feeRates.length) % feeRates.length;
+            consumer.accept(timestamps[index], feeRates[index]);
+        }
+    }
+
+    private void count(long feeRate, int delta) {
+        for (int i = (int) feeRate + 1; i < counts.length; i += i & -i)
+            counts[i] += delta;
+    }
+
+
+    @FunctionalInterface
+    public interface SampleConsumer {
+
+        void accept(long timestamp, long feeRate);
+    }
+}
@@ -19,8 +19,17 @@ package bisq.price.mining;
 
 import bisq.price.PriceProvider;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import java.time.Duration;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
 /**
  * Abstract base class for providers of mining {@link FeeRate} data.
  */
@@ -29,4 +38,42 @@ public abstract class FeeRateProvider extends PriceProvider<FeeRate> {
     public FeeRateProvider(Duration refreshInterval) {
         super(refreshInterval);
     }
+
+    /**
+     * @return the fee rate to serve, derived from the latest result returned by
+     * {@link #get()}; that result itself unless overridden, e.g. in order to smooth it
+     */
+    public FeeRate getFeeRate() {
+        return get();
+    }
+
+    /**
+     * @return the history of the fee rates this provider fetched, if it keeps one
+     */
+    public Optional<FeeRateHistory> getHistory() {
+        return Optional.empty();
+    }
+
+    @Override
+    protected final void writeResult(DataOutput out, FeeRate feeRate) throws IOException {
+        out.writeUTF(feeRate.getCurrency());
+        out.writeLong(feeRate.getPrice());
+        out.writeLong(feeRate.getTimestamp());
+        out.writeInt(feeRate.getEstimates().size());
+        for (Map.Entry<Integer, Long> estimate : feeRate.getEstimates().entrySet()) {
+            out.writeInt(estimate.getKey());
+            out.writeLong(estimate.getValue());
+        }
+    }
+
+    @Override
+    protected final FeeRate readResult(DataInput in) throws IOException {
+        String currency = in.readUTF();
+        long price = in.readLong();
+        long timestamp = in.readLong();
+        SortedMap<Integer, Long> estimates = new TreeMap<>();
+        for (int i = in.readInt(); i > 0; i--)
+            estimates.put(in.readInt(), in.readLong());
+        return new FeeRate(currency, price, timestamp, estimates);
+    }
 }
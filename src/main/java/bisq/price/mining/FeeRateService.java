@@ -17,40 +17,243 @@
 
 package bisq.price.mining;
 
+import bisq.price.Snapshot;
+import bisq.price.SnapshotPart;
+import bisq.price.UpdateBroadcaster;
+
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 /**
  * High-level mining {@link FeeRate} operations.
+ * <p>
+ * Fee rates come from a registry of providers by currency: {@link FeeRateProvider}s
+ * refreshed on schedule, and {@link FixedFeeRateProvider}s whose fee rates never change.
+ * Each time any provider refreshes, all responses are rebuilt at once into an immutable
+ * {@link Fees} instance, such that requests are served without any further work. Fee
+ * rates are taken from {@link FeeRateProvider#getFeeRate()}, such that any smoothing
+ * applies alike to all responses.
  */
 @Service
-class FeeRateService {
+class FeeRateService implements SnapshotPart {
+
+    private static final int[] HISTORY_PERCENTILES = {10, 25, 50, 75, 90};
 
     private final Set<FeeRateProvider> providers;
+    private final List<FeeRate> fixedFeeRates;
+    private final ObjectMapper mapper;
+    private final UpdateBroadcaster updates;
+    private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+    private final Snapshot noHistory;
+
+    private volatile Fees fees;
 
-    public FeeRateService(Set<FeeRateProvider> providers) {
+    public FeeRateService(Set<FeeRateProvider> providers, List<FixedFeeRateProvider> fixedProviders,
+                          ObjectMapper mapper, MeterRegistry meterRegistry) {
         this.providers = providers;
+        this.fixedFeeRates = fixedProviders.stream().map(FixedFeeRateProvider::get).collect(Collectors.toList());
+        this.mapper = mapper;
+        this.updates = new UpdateBroadcaster(mapper, "fees", null);
+        this.noHistory = Snapshot.of(mapper, Collections.emptyList());
+        this.fees = new Fees();
+
+        providers.forEach(p -> p.addRefreshListener(this::refresh));
+
+        Gauge.builder("pricenode.payload.size", this, s -> s.fees.fees.getJson().length)
+            .description("Size of the most recent response payload")
+            .tags("payload", "getFees", "encoding", "identity")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("pricenode.payload.size", this, s -> s.fees.fees.getGzippedJson().length)
+            .description("Size of the most recent response payload")
+            .tags("payload", "getFees", "encoding", "gzip")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the most recent snapshot of all fee rates, as rebuilt each time any
+     * {@link FeeRateProvider} refreshes its data
+     */
+    public Snapshot getFees() {
+        return fees.fees;
+    }
+
+    /**
+     * @return the most recent snapshot of all fee rate estimates, for each currency by
+     * confirmation target in blocks, as rebuilt each time any {@link FeeRateProvider}
+     * refreshes its data. Each currency has an estimate for each target estimated by
+     * any provider, taken from the provider's nearest lower target where it has no
+     * estimate for that target itself, or from its fee rate where it has none at all.
+     */
+    public Snapshot getEstimates() {
+        return fees.estimates;
+    }
+
+    /**
+     * @param currency the currency to query, or null for all
+     * @return the most recent snapshot of one entry per currency whose provider keeps a
+     * {@link FeeRateHistory}, each with the fee rate currently provided, the moving
+     * average and the {@link #HISTORY_PERCENTILES} of the fee rates held, and these fee
+     * rates and their timestamps in two arrays; as rebuilt each time any
+     * {@link FeeRateProvider} refreshes its data
+     */
+    public Snapshot getHistory(String currency) {
+        Fees fees = this.fees;
+        return currency == null ? fees.history : fees.historyByCurrency.getOrDefault(currency, noHistory);
+    }
+
+    /**
+     * @return "fees", the part of combined snapshots carrying the same data as
+     * {@link #getFees()}
+     */
+    @Override
+    public String getPartName() {
+        return "fees";
+    }
+
+    @Override
+    public View getView() {
+        Map<String, Object> fees = this.fees.feesData;
+        return currencies -> fees;
     }
 
-    public Map<String, Object> getFees() {
-        Map<String, Long> metadata = new HashMap<>();
-        Map<String, Long> allFeeRates = new HashMap<>();
+    @Override
+    public void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * Subscribe to a stream of server-sent "fees" events, each carrying the same data as
+     * {@link #getFees()}, starting with the current fees and followed by an event after
+     * each refresh.
+     */
+    public SseEmitter subscribe() {
+        return updates.subscribe();
+    }
+
+    private synchronized void refresh() {
+        Fees fees = new Fees();
+        this.fees = fees;
+        updates.publish(() -> fees.feesData, null);
+        updateListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * All fee rate responses as of one refresh.
+     */
+    private final class Fees {
+
+        private final Map<String, Object> feesData;
+        private final Snapshot fees;
+        private final Snapshot estimates;
+        private final Snapshot history;
+        private final Map<String, Snapshot> historyByCurrency = new HashMap<>();
+
+        Fees() {
+            List<FeeRate> feeRates = new ArrayList<>();
+            List<String> stale = new ArrayList<>();
+            List<Map<String, Object>> histories = new ArrayList<>();
+            providers.stream().filter(FeeRateProvider::isRunning).forEach(p -> {
+                FeeRate feeRate = p.getFeeRate();
+                feeRates.add(feeRate);
+                if (p.isStale())
+                    stale.add(feeRate.getCurrency());
+                p.getHistory().ifPresent(history -> histories.add(buildHistory(feeRate, history)));
+            });
+            feeRates.addAll(fixedFeeRates);
+
+            Map<String, Object> metadata = new HashMap<>();
+            feeRates.stream().filter(r -> "BTC".equals(r.getCurrency())).findFirst()
+                .ifPresent(r -> metadata.put("bitcoinFeesTs", r.getTimestamp()));
+            // only present while any provider serves its last good result rather than a current one
+            if (!stale.isEmpty())
+                metadata.put("stale", stale);
+
+            this.feesData = Collections.unmodifiableMap(buildFees(metadata, feeRates));
+            this.fees = Snapshot.of(mapper, feesData);
+            this.estimates = Snapshot.of(mapper, buildEstimates(metadata, feeRates));
+            this.history = Snapshot.of(mapper, histories);
+            histories.forEach(h -> historyByCurrency.put(
+                (String) h.get("currencyCode"), Snapshot.of(mapper, Collections.singletonList(h))));
+        }
+
+        private Map<String, Object> buildFees(Map<String, Object> metadata, List<FeeRate> feeRates) {
+            Map<String, Long> allFeeRates = new HashMap<>();
+            feeRates.forEach(r -> allFeeRates.put(r.getCurrency().toLowerCase() + "TxFee", r.getPrice()));
+
+            return new HashMap<String, Object>() {{
+                putAll(metadata);
+                put("dataMap", allFeeRates);
+            }};
+        }
+
+        private Map<String, Object> buildHistory(FeeRate feeRate, FeeRateHistory history) {
+            Map<String, Long> percentiles = new LinkedHashMap<>();
+            double ewma;
+            long[] timestamps;
+            long[] feeRates;
+            synchronized (history) {
+                ewma = history.getEwma();
+                for (int percentile : HISTORY_PERCENTILES)
+                    percentiles.put(String.valueOf(percentile), history.getPercentile(percentile));
+                timestamps = new long[history.size()];
+                feeRates = new long[history.size()];
+                int[] i = {0};
+                history.forEach((timestamp, r) -> {
+                    timestamps[i[0]] = timestamp;
+                    feeRates[i[0]++] = r;
+                });
+            }
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("currencyCode", feeRate.getCurrency());
+            entry.put("feeRate", feeRate.getPrice());
+            entry.put("ewma", ewma);
+            entry.put("percentiles", percentiles);
+            entry.put("timestampsSec", timestamps);
+            entry.put("feeRates", feeRates);
+            return entry;
+        }
+
+        private Map<String, Object> buildEstimates(Map<String, Object> metadata, List<FeeRate> feeRates) {
+            SortedSet<Integer> targets = new TreeSet<>();
+            feeRates.forEach(r -> targets.addAll(r.getEstimates().keySet()));
 
-        providers.forEach(p -> {
-            FeeRate feeRate = p.get();
-            String currency = feeRate.getCurrency();
-            if ("BTC".equals(currency)) {
-                metadata.put("bitcoinFeesTs", feeRate.getTimestamp());
+            Map<String, Map<Integer, Long>> allEstimates = new TreeMap<>();
+            for (FeeRate feeRate : feeRates) {
+                SortedMap<Integer, Long> own = feeRate.getEstimates();
+                Map<Integer, Long> estimates = new TreeMap<>();
+                for (int target : targets) {
+                    SortedMap<Integer, Long> lower = own.headMap(target + 1);
+                    estimates.put(target, lower.isEmpty() ? feeRate.getPrice() : lower.get(lower.lastKey()));
+                }
+                allEstimates.put(feeRate.getCurrency(), estimates);
             }
-            allFeeRates.put(currency.toLowerCase() + "TxFee", feeRate.getPrice());
-        });
 
-        return new HashMap<String, Object>() {{
-            putAll(metadata);
-            put("dataMap", allFeeRates);
-        }};
+            Map<String, Object> estimates = new HashMap<>(metadata);
+            estimates.put("targets", targets);
+            estimates.put("estimates", allEstimates);
+            return estimates;
+        }
     }
 }
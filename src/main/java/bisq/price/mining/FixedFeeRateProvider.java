@@ -15,26 +15,24 @@
  * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
  */
 
-package bisq.price.mining.providers;
+package bisq.price.mining;
 
-import bisq.price.mining.FeeRate;
-import bisq.price.mining.FeeRateProvider;
-
-import java.time.Duration;
 import java.time.Instant;
 
-abstract class FixedFeeRateProvider extends FeeRateProvider {
+/**
+ * Abstract base class for providers of mining {@link FeeRate} data that never changes.
+ * Unlike {@link FeeRateProvider}s, these are never refreshed, and so take no scheduling,
+ * caching or replication at all.
+ */
+public abstract class FixedFeeRateProvider {
 
-    private final String currency;
-    private final long price;
+    private final FeeRate feeRate;
 
     public FixedFeeRateProvider(String currency, long price) {
-        super(Duration.ofDays(1));
-        this.currency = currency;
-        this.price = price;
+        this.feeRate = new FeeRate(currency, price, Instant.now().getEpochSecond());
     }
 
-    protected final FeeRate doGet() {
-        return new FeeRate(currency, price, Instant.now().getEpochSecond());
+    public final FeeRate get() {
+        return feeRate;
     }
 }
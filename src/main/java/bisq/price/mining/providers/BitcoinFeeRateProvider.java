@@ -18,9 +18,13 @@
 package bisq.price.mining.providers;
 
 import bisq.price.PriceController;
+import bisq.price.SnapshotPart;
 import bisq.price.mining.FeeRate;
+import bisq.price.mining.FeeRateHistory;
 import bisq.price.mining.FeeRateProvider;
+import bisq.price.util.HttpClient;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.env.CommandLinePropertySource;
 import org.springframework.core.env.Environment;
@@ -28,19 +32,41 @@ import org.springframework.http.RequestEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+
+import java.nio.file.Paths;
+
 import java.time.Duration;
 import java.time.Instant;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Provides the Bitcoin mining fee rate for transactions to confirm within a configured
+ * number of blocks, along with estimates for several other confirmation targets,
+ * estimated from the mempool of a bitcoind node if one is configured, or else fetched
+ * from bitcoinfees.earn.com. The fee rate and estimates provided are the medians of the
+ * most recent estimates for each number of blocks, such that a single outlying estimate
+ * does not move the fee rate of the whole network. Each result is recorded as it is
+ * cached, whether fetched, restored from the cache or replicated from another node, such
+ * that followers and restarted nodes smooth and keep a history of fee rates too.
+ */
 @Component
-class BitcoinFeeRateProvider extends FeeRateProvider {
+class BitcoinFeeRateProvider extends FeeRateProvider implements DisposableBean {
+
+    static final String MEMPOOL_SOURCE_PROPERTY = "PRICENODE_MEMPOOL_SOURCE";
+    static final String MEMPOOL_NOTIFICATIONS_PROPERTY = "PRICENODE_MEMPOOL_NOTIFICATIONS";
 
     private static final long MIN_FEE_RATE = 10; // satoshi/byte
     private static final long MAX_FEE_RATE = 1000;
@@ -48,35 +74,106 @@ class BitcoinFeeRateProvider extends FeeRateProvider {
     private static final int DEFAULT_MAX_BLOCKS = 2;
     private static final int DEFAULT_REFRESH_INTERVAL = 2;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    /** The number of most recent estimates of which those provided are the medians. */
+    private static final int SMOOTHING_WINDOW = 5;
+
+    private static final int HISTORY_CAPACITY = 720; // one day at the default refresh interval
+    private static final double HISTORY_EWMA_WEIGHT = 0.1;
+
+    /** The confirmation targets in blocks to estimate fee rates for, besides the max blocks. */
+    private static final int[] TARGETS = {1, 2, 3, 6, 12, 24, 144};
+
+    private final HttpClient httpClient;
 
     private final int maxBlocks;
+    private final int[] targets;
+    private final MempoolFeeEstimator mempool;
+
+    private final FeeRateHistory history = new FeeRateHistory(HISTORY_CAPACITY, MAX_FEE_RATE, HISTORY_EWMA_WEIGHT);
 
-    public BitcoinFeeRateProvider(Environment env) {
+    // the most recent estimates by target, guarded by this
+    private final Map<Integer, FeeRateHistory> recent = new TreeMap<>();
+    private long lastRecorded;
+
+    private volatile FeeRate smoothed;
+
+    public BitcoinFeeRateProvider(Environment env, HttpClient httpClient, ObjectMapper mapper) {
         super(Duration.ofMinutes(refreshInterval(env)));
+        this.httpClient = httpClient;
         this.maxBlocks = maxBlocks(env);
+        this.targets = IntStream.concat(Arrays.stream(TARGETS), IntStream.of(maxBlocks)).distinct().sorted().toArray();
+        this.mempool = mempoolSource(env, httpClient, mapper).map(MempoolFeeEstimator::new).orElse(null);
     }
 
     protected FeeRate doGet() {
-        return new FeeRate("BTC", getEstimatedFeeRate(), Instant.now().getEpochSecond());
+        SortedMap<Integer, Long> estimates = new TreeMap<>();
+        if (mempool != null) {
+            mempool.refresh();
+            mempool.estimate(targets, MIN_FEE_RATE).forEach((target, r) -> estimates.put(target, clamp(r)));
+        } else {
+            List<Map<String, Long>> predictions = getFeeRatePredictions();
+            for (int target : targets)
+                estimates.put(target, getEstimatedFeeRate(predictions, target));
+        }
+
+        return new FeeRate("BTC", estimates.get(maxBlocks), Instant.now().getEpochSecond(), estimates);
+    }
+
+    @Override
+    protected synchronized void onRefresh() {
+        FeeRate latest = get();
+        if (latest.getTimestamp() == lastRecorded)
+            return;
+        lastRecorded = latest.getTimestamp();
+
+        SortedMap<Integer, Long> estimates = new TreeMap<>(latest.getEstimates());
+        estimates.putIfAbsent(maxBlocks, latest.getPrice());
+        SortedMap<Integer, Long> medians = new TreeMap<>();
+        estimates.forEach((target, estimate) -> {
+            FeeRateHistory window = recent.computeIfAbsent(target,
+                t -> new FeeRateHistory(SMOOTHING_WINDOW, MAX_FEE_RATE, 1));
+            window.record(latest.getTimestamp(), estimate);
+            medians.put(target, window.getPercentile(50));
+        });
+        history.record(latest.getTimestamp(), latest.getPrice());
+
+        long feeRate = medians.get(maxBlocks);
+        log.info("latest fee rate estimate is {} sat/byte, median of the last {} is {} sat/byte",
+            latest.getPrice(), recent.get(maxBlocks).size(), feeRate);
+        smoothed = new FeeRate("BTC", feeRate, latest.getTimestamp(), medians);
+    }
+
+    @Override
+    public FeeRate getFeeRate() {
+        FeeRate smoothed = this.smoothed;
+        return smoothed != null ? smoothed : get();
+    }
+
+    @Override
+    public Optional<FeeRateHistory> getHistory() {
+        return Optional.of(history);
+    }
+
+    @Override
+    public void destroy() {
+        if (mempool != null)
+            mempool.close();
     }
 
-    private long getEstimatedFeeRate() {
-        return getFeeRatePredictions()
-            .filter(p -> p.get("maxDelay") <= maxBlocks)
+    private static long getEstimatedFeeRate(List<Map<String, Long>> predictions, int target) {
+        return predictions.stream()
+            .filter(p -> p.get("maxDelay") <= target)
             .findFirst()
-            .map(p -> p.get("maxFee"))
-            .map(r -> {
-                log.info("latest fee rate prediction is {} sat/byte", r);
-                return r;
-            })
-            .map(r -> Math.max(r, MIN_FEE_RATE))
-            .map(r -> Math.min(r, MAX_FEE_RATE))
+            .map(p -> clamp(p.get("maxFee")))
             .orElse(MIN_FEE_RATE);
     }
 
-    private Stream<Map<String, Long>> getFeeRatePredictions() {
-        return restTemplate.exchange(
+    private static long clamp(long feeRate) {
+        return Math.min(Math.max(feeRate, MIN_FEE_RATE), MAX_FEE_RATE);
+    }
+
+    private List<Map<String, Long>> getFeeRatePredictions() {
+        return httpClient.exchange(
             RequestEntity
                 .get(UriComponentsBuilder
                     // now using /fees/list because /fees/recommended estimates were too high
@@ -87,7 +184,27 @@ class BitcoinFeeRateProvider extends FeeRateProvider {
             new ParameterizedTypeReference<Map<String, List<Map<String, Long>>>>() {
             }
         ).getBody().entrySet().stream()
-            .flatMap(e -> e.getValue().stream());
+            .flatMap(e -> e.getValue().stream())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the configured source of mempool transactions, either the URL of a bitcoind
+     * node's JSON-RPC interface including its credentials or a {@code file:} URL of a
+     * recorded {@code getrawmempool true} output, if any, the former along with the
+     * address of the node's {@code sequence} ZMQ notifications if configured
+     */
+    private static Optional<MempoolSource> mempoolSource(Environment env, HttpClient httpClient, ObjectMapper mapper) {
+        URI notifications = Optional.ofNullable(env.getProperty(MEMPOOL_NOTIFICATIONS_PROPERTY))
+            .filter(address -> !address.isEmpty())
+            .map(URI::create)
+            .orElse(null);
+        return Optional.ofNullable(env.getProperty(MEMPOOL_SOURCE_PROPERTY))
+            .filter(source -> !source.isEmpty())
+            .map(URI::create)
+            .map(uri -> "file".equals(uri.getScheme()) ?
+                new RecordedMempoolSource(Paths.get(uri)) :
+                new BitcoindMempoolSource(httpClient, mapper, uri, notifications));
     }
 
     private static Optional<String[]> args(Environment env) {
@@ -111,11 +228,33 @@ class BitcoinFeeRateProvider extends FeeRateProvider {
 
 
     @RestController
-    class Controller extends PriceController {
+    static class Controller extends PriceController implements SnapshotPart {
+
+        private final BitcoinFeeRateProvider provider;
+
+        public Controller(BitcoinFeeRateProvider provider) {
+            this.provider = provider;
+        }
 
         @GetMapping(path = "/getParams")
         public String getParams() {
-            return String.format("%s;%s", maxBlocks, refreshInterval.toMillis());
+            return String.format("%s;%s", provider.maxBlocks, provider.refreshInterval.toMillis());
+        }
+
+        @Override
+        public String getPartName() {
+            return "params";
+        }
+
+        @Override
+        public View getView() {
+            String params = getParams();
+            return currencies -> params;
+        }
+
+        @Override
+        public void addUpdateListener(Runnable listener) {
+            // the params never change
         }
     }
 }
@@ -17,6 +17,8 @@
 
 package bisq.price.mining.providers;
 
+import bisq.price.mining.FixedFeeRateProvider;
+
 import org.springframework.stereotype.Component;
 
 @Component
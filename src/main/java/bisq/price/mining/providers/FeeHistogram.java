@@ -0,0 +1,96 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining.providers;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The virtual size of mempool transactions by fee rate, kept in a fixed number of
+ * logarithmically spaced fee rate buckets such that adding or removing a transaction
+ * takes constant time and memory regardless of the size of the mempool.
+ * <p>
+ * Not thread-safe.
+ */
+final class FeeHistogram {
+
+    /** Each bucket spans fee rates from its lower bound up to 5% more. */
+    private static final double BUCKET_SPACING = 1.05;
+    private static final int BUCKETS = 256; // covers 1 to ~250,000 sat/vbyte
+
+    static final long BLOCK_VSIZE = 1_000_000;
+
+    private final long[] vsizes = new long[BUCKETS];
+    private long totalVsize;
+
+    /**
+     * @return the bucket holding transactions paying the given fee for the given
+     * virtual size, for use with {@link #add} and {@link #remove}
+     */
+    static int bucketOf(long fee, long vsize) {
+        double feeRate = (double) fee / Math.max(vsize, 1);
+        if (feeRate <= 1)
+            return 0;
+        return (int) Math.min(Math.log(feeRate) / Math.log(BUCKET_SPACING), BUCKETS - 1);
+    }
+
+    /**
+     * @return the lowest fee rate in sat/vbyte of the given bucket, rounded up
+     */
+    static long feeRateOf(int bucket) {
+        return (long) Math.ceil(Math.pow(BUCKET_SPACING, bucket));
+    }
+
+    void add(int bucket, long vsize) {
+        vsizes[bucket] += vsize;
+        totalVsize += vsize;
+    }
+
+    void remove(int bucket, long vsize) {
+        vsizes[bucket] -= vsize;
+        totalVsize -= vsize;
+    }
+
+    long getTotalVsize() {
+        return totalVsize;
+    }
+
+    /**
+     * Project which transactions the next blocks include, assuming miners fill each
+     * block with the highest paying transactions and no further transactions arrive.
+     *
+     * @param targets confirmation targets in blocks, in ascending order
+     * @return for each target, the lowest fee rate in sat/vbyte of a transaction that
+     * would be included within that many blocks, or the given minimum if these blocks
+     * are not going to be full
+     */
+    SortedMap<Integer, Long> project(int[] targets, long minFeeRate) {
+        SortedMap<Integer, Long> estimates = new TreeMap<>();
+        long included = 0;
+        int bucket = BUCKETS - 1;
+        for (int target : targets) {
+            long capacity = target * BLOCK_VSIZE;
+            while (bucket >= 0 && included + vsizes[bucket] <= capacity)
+                included += vsizes[bucket--];
+            // the blocks are full once a bucket no longer fits entirely, so a transaction
+            // must outbid that bucket to be sure to be included
+            estimates.put(target, bucket < 0 ? minFeeRate : Math.max(feeRateOf(bucket + 1), minFeeRate));
+        }
+        return estimates;
+    }
+}
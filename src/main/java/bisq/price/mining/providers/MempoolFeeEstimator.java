@@ -0,0 +1,181 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining.providers;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates Bitcoin mining fee rates from the transactions in the mempool, by projecting
+ * which of them the next blocks are going to include.
+ * <p>
+ * The fee rates of mempool transactions are tracked in a {@link FeeHistogram} that is
+ * updated incrementally on each refresh: only the transactions that entered the mempool
+ * since are fetched, and only those and the ones that left it are added to or removed
+ * from the histogram. If the source tracks which these are, a refresh costs as much as
+ * the changes since the last one. Otherwise, and to resynchronize after the source lost
+ * track, after a failed refresh and at least hourly, a refresh lists the ids of all
+ * transactions in the mempool and looks each up among those tracked, so its cost grows
+ * with the size of the mempool, albeit by a hash lookup per transaction rather than by
+ * a fetch. The first refresh fetches the whole mempool at once rather than transaction
+ * by transaction. Transactions are added as they are fetched, such that those fetched
+ * by a refresh that fails or times out midway need not be fetched again.
+ * <p>
+ * Thread-safe, such that a refresh still running after it timed out delays rather
+ * than interferes with the next one.
+ */
+class MempoolFeeEstimator {
+
+    /** The longest to go by the changes tracked by the source without listing the mempool. */
+    private static final Duration RESYNC_INTERVAL = Duration.ofHours(1);
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final MempoolSource source;
+    private final FeeHistogram histogram = new FeeHistogram();
+
+    /** The bucket and virtual size of each transaction in the histogram, packed by {@link #pack}. */
+    private final Map<String, Long> transactions = new HashMap<>();
+
+    /** When the mempool was last listed, if the changes tracked since have all been applied. */
+    private Instant synced;
+
+    MempoolFeeEstimator(MempoolSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Bring the histogram up to date with the mempool.
+     */
+    synchronized void refresh() {
+        Instant lastSynced = synced;
+        synced = null;
+
+        Optional<MempoolSource.Changes> changes = Optional.empty();
+        if (lastSynced != null && Instant.now().isBefore(lastSynced.plus(RESYNC_INTERVAL)))
+            changes = source.getChanges();
+        if (changes.isPresent()) {
+            apply(changes.get());
+            synced = lastSynced;
+            return;
+        }
+
+        source.trackChanges();
+        if (transactions.isEmpty()) {
+            source.getAllEntries(this::add);
+            log.info("mempool holds {} transactions of {} vbytes", transactions.size(), histogram.getTotalVsize());
+        } else {
+            diff(source.getTxids());
+        }
+        synced = Instant.now();
+    }
+
+    /**
+     * @see MempoolSource#close
+     */
+    void close() {
+        source.close();
+    }
+
+    /**
+     * @param targets confirmation targets in blocks, in ascending order
+     * @return the estimated fee rate in sat/vbyte for each target, at least the given
+     * minimum
+     * @see FeeHistogram#project
+     */
+    synchronized SortedMap<Integer, Long> estimate(int[] targets, long minFeeRate) {
+        return histogram.project(targets, minFeeRate);
+    }
+
+    private void apply(MempoolSource.Changes changes) {
+        int removed = 0;
+        for (String txid : changes.getRemoved()) {
+            Long packed = transactions.remove(txid);
+            if (packed != null) {
+                histogram.remove(bucket(packed), vsize(packed));
+                removed++;
+            }
+        }
+
+        List<String> added = new ArrayList<>();
+        for (String txid : changes.getAdded())
+            if (!transactions.containsKey(txid))
+                added.add(txid);
+
+        source.getEntries(added, this::add);
+
+        log.info("mempool holds {} transactions of {} vbytes, {} added and {} removed as notified",
+            transactions.size(), histogram.getTotalVsize(), added.size(), removed);
+    }
+
+    private void diff(Set<String> txids) {
+        int removed = 0;
+        for (Iterator<Map.Entry<String, Long>> it = transactions.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Long> transaction = it.next();
+            if (!txids.contains(transaction.getKey())) {
+                long packed = transaction.getValue();
+                histogram.remove(bucket(packed), vsize(packed));
+                it.remove();
+                removed++;
+            }
+        }
+
+        List<String> added = new ArrayList<>();
+        for (String txid : txids)
+            if (!transactions.containsKey(txid))
+                added.add(txid);
+
+        source.getEntries(added, this::add);
+
+        log.info("mempool holds {} transactions of {} vbytes, {} added and {} removed",
+            transactions.size(), histogram.getTotalVsize(), added.size(), removed);
+    }
+
+    private void add(String txid, MempoolSource.Entry entry) {
+        if (transactions.containsKey(txid))
+            return;
+
+        int bucket = FeeHistogram.bucketOf(entry.getFee(), entry.getVsize());
+        histogram.add(bucket, entry.getVsize());
+        transactions.put(txid, pack(bucket, entry.getVsize()));
+    }
+
+    private static long pack(int bucket, long vsize) {
+        return (long) bucket << 32 | vsize;
+    }
+
+    private static int bucket(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static long vsize(long packed) {
+        return packed & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining.providers;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+import java.math.BigDecimal;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A source of the transactions in a Bitcoin mempool, queried in two steps such that
+ * the fees of transactions already known need not be fetched again, or all at once to
+ * start with. Sources that can tell which transactions entered and left the mempool
+ * spare listing all of it on each query.
+ */
+interface MempoolSource {
+
+    /**
+     * @return the ids of all transactions currently in the mempool
+     */
+    Set<String> getTxids();
+
+    /**
+     * Pass the entries of those of the given transactions that are still in the mempool
+     * to the given consumer along with their ids, as they are received rather than once
+     * all are, such that those received before any failure are not lost.
+     */
+    void getEntries(Collection<String> txids, BiConsumer<String, Entry> consumer);
+
+    /**
+     * Pass the entries of all transactions currently in the mempool to the given
+     * consumer along with their ids, as they are received.
+     */
+    void getAllEntries(BiConsumer<String, Entry> consumer);
+
+    /**
+     * Start tracking which transactions enter and leave the mempool, discarding any
+     * changes tracked so far. Called right before the mempool is listed, such that no
+     * change after listing it is missed, and changes before are redundant but harmless.
+     */
+    default void trackChanges() {
+    }
+
+    /**
+     * @return the transactions that entered and left the mempool since changes were
+     * last tracked or returned, or nothing if this source does not track changes or lost
+     * track of them, in which case the mempool has to be listed again
+     */
+    default Optional<Changes> getChanges() {
+        return Optional.empty();
+    }
+
+    /**
+     * Release any connection held to track changes.
+     */
+    default void close() {
+    }
+
+    /**
+     * The transactions that entered and left the mempool over some time, each of them
+     * either in or out of it at the end of that time.
+     */
+    final class Changes {
+
+        private final Collection<String> added;
+        private final Collection<String> removed;
+
+        Changes(Collection<String> added, Collection<String> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        /**
+         * @return the ids of the transactions that entered the mempool, some of which may
+         * have been in it already
+         */
+        Collection<String> getAdded() {
+            return added;
+        }
+
+        /**
+         * @return the ids of the transactions that left the mempool, some of which may
+         * not have been known to be in it
+         */
+        Collection<String> getRemoved() {
+            return removed;
+        }
+    }
+
+    /**
+     * The fee and virtual size of a mempool transaction.
+     */
+    final class Entry {
+
+        private final long fee;
+        private final long vsize;
+
+        Entry(long fee, long vsize) {
+            this.fee = fee;
+            this.vsize = vsize;
+        }
+
+        /**
+         * @return the fee in satoshi
+         */
+        long getFee() {
+            return fee;
+        }
+
+        /**
+         * @return the virtual size in vbytes
+         */
+        long getVsize() {
+            return vsize;
+        }
+
+        /**
+         * Read an entry as formatted by bitcoind's {@code getmempoolentry} and verbose
+         * {@code getrawmempool}, skipping the fields of no interest, from the parser
+         * positioned at its start.
+         */
+        static Entry read(JsonParser parser) throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT)
+                throw new IOException("mempool entry expected but got " + parser.currentToken());
+
+            BigDecimal fee = null;
+            long vsize = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "vsize":
+                        vsize = parser.getLongValue();
+                        break;
+                    case "size": // the virtual size before bitcoind 0.19
+                        if (vsize == 0)
+                            vsize = parser.getLongValue();
+                        break;
+                    case "fee": // deprecated in favor of fees.base since bitcoind 0.17
+                        if (fee == null)
+                            fee = parser.getDecimalValue();
+                        break;
+                    case "fees":
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String feeField = parser.getCurrentName();
+                            parser.nextToken();
+                            if ("base".equals(feeField))
+                                fee = parser.getDecimalValue();
+                            else
+                                parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (fee == null || vsize == 0)
+                throw new IOException("mempool entry lacks fee or size");
+
+            return new Entry(fee.movePointRight(8).longValue(), vsize); // BTC to satoshi
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining.providers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the mempool from a file recorded with {@code bitcoin-cli getrawmempool true},
+ * standing in for a bitcoind node, e.g. in order to run a pricenode without one. The
+ * file is read again each time it is replaced or modified.
+ */
+class RecordedMempoolSource implements MempoolSource {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Path file;
+
+    private long lastModified;
+    private Map<String, Entry> entries = Collections.emptyMap();
+
+    RecordedMempoolSource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized Set<String> getTxids() {
+        reloadIfModified();
+        return entries.keySet();
+    }
+
+    @Override
+    public synchronized void getEntries(Collection<String> txids, BiConsumer<String, Entry> consumer) {
+        for (String txid : txids) {
+            Entry entry = entries.get(txid);
+            if (entry != null)
+                consumer.accept(txid, entry);
+        }
+    }
+
+    @Override
+    public synchronized void getAllEntries(BiConsumer<String, Entry> consumer) {
+        reloadIfModified();
+        entries.forEach(consumer);
+    }
+
+    private void reloadIfModified() {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified != lastModified) {
+                entries = read(file);
+                lastModified = modified;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Map<String, Entry> read(Path file) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("verbose getrawmempool output expected in " + file);
+
+            Map<String, Entry> entries = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String txid = parser.getCurrentName();
+                parser.nextToken();
+                entries.put(txid, Entry.read(parser));
+            }
+            return Collections.unmodifiableMap(entries);
+        }
+    }
+}
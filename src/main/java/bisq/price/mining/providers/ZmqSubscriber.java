@@ -0,0 +1,167 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.mining.providers;
+
+import bisq.price.util.HttpClient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Subscribes to one topic of a ZeroMQ publisher over TCP, e.g. {@code tcp://localhost:28332},
+ * such as those of bitcoind's {@code -zmqpub*} options, speaking just enough of ZMTP 3.0
+ * with the NULL security mechanism to receive messages, rather than depending on a
+ * ZeroMQ library. The connection is not re-established once lost.
+ */
+class ZmqSubscriber implements Closeable {
+
+    private static final int MORE = 0x01;
+    private static final int LONG = 0x02;
+    private static final int COMMAND = 0x04;
+
+    private static final int MAX_FRAME_SIZE = 1 << 20;
+
+    private final Socket socket = new Socket();
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    /**
+     * Connect to the publisher at the given URI and subscribe to the given topic, failing
+     * within the {@link HttpClient}'s connect and read timeouts if it does not respond.
+     */
+    ZmqSubscriber(URI uri, String topic) throws IOException {
+        try {
+            socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort()),
+                (int) HttpClient.CONNECT_TIMEOUT.toMillis());
+            socket.setSoTimeout((int) HttpClient.READ_TIMEOUT.toMillis());
+            socket.setKeepAlive(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new BufferedOutputStream(socket.getOutputStream());
+
+            handshake();
+            byte[] subscription = new byte[topic.length() + 1];
+            subscription[0] = 1;
+            System.arraycopy(topic.getBytes(StandardCharsets.US_ASCII), 0, subscription, 1, topic.length());
+            send(0, subscription);
+            out.flush();
+
+            // messages may be far apart, e.g. while the mempool is quiet
+            socket.setSoTimeout(0);
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the frames of the next message, once it has been received
+     */
+    List<byte[]> receive() throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        while (true) {
+            int flags = in.readUnsignedByte();
+            byte[] body = readFrameBody(flags);
+            if ((flags & COMMAND) != 0)
+                continue; // e.g. a heartbeat, of no interest to a subscriber
+
+            frames.add(body);
+            if ((flags & MORE) == 0)
+                return frames;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void handshake() throws IOException {
+        // signature, version 3.0, mechanism and as-server flag, padded to 64 bytes
+        byte[] greeting = new byte[64];
+        greeting[0] = (byte) 0xFF;
+        greeting[9] = 0x7F;
+        greeting[10] = 3;
+        System.arraycopy("NULL".getBytes(StandardCharsets.US_ASCII), 0, greeting, 12, 4);
+        out.write(greeting);
+        send(COMMAND, readyCommand());
+        out.flush();
+
+        byte[] peerGreeting = new byte[64];
+        in.readFully(peerGreeting);
+        if ((peerGreeting[0] & 0xFF) != 0xFF || (peerGreeting[9] & 0x01) == 0 || peerGreeting[10] < 3)
+            throw new IOException("publisher does not speak ZMTP 3");
+        String mechanism = new String(peerGreeting, 12, 20, StandardCharsets.US_ASCII).trim();
+        if (!"NULL".equals(mechanism))
+            throw new IOException("publisher requires the " + mechanism + " security mechanism");
+
+        int flags = in.readUnsignedByte();
+        byte[] command = readFrameBody(flags);
+        String name = (flags & COMMAND) == 0 || command.length == 0 ? "" :
+            new String(command, 1, Math.min(command[0] & 0xFF, command.length - 1), StandardCharsets.US_ASCII);
+        if (!"READY".equals(name))
+            throw new IOException("publisher answered the handshake with " + (name.isEmpty() ? "a message" : name));
+    }
+
+    private static byte[] readyCommand() {
+        byte[] name = "READY".getBytes(StandardCharsets.US_ASCII);
+        byte[] property = "Socket-Type".getBytes(StandardCharsets.US_ASCII);
+        byte[] value = "SUB".getBytes(StandardCharsets.US_ASCII);
+
+        byte[] command = new byte[1 + name.length + 1 + property.length + 4 + value.length];
+        int i = 0;
+        command[i++] = (byte) name.length;
+        System.arraycopy(name, 0, command, i, name.length);
+        i += name.length;
+        command[i++] = (byte) property.length;
+        System.arraycopy(property, 0, command, i, property.length);
+        i += property.length + 3; // the value's length is a four byte big-endian integer
+        command[i++] = (byte) value.length;
+        System.arraycopy(value, 0, command, i, value.length);
+        return command;
+    }
+
+    private void send(int flags, byte[] body) throws IOException {
+        // all frames sent are short ones
+        out.write(flags);
+        out.write(body.length);
+        out.write(body);
+    }
+
+    private byte[] readFrameBody(int flags) throws IOException {
+        long size = (flags & LONG) != 0 ? in.readLong() : in.readUnsignedByte();
+        if (size < 0 || size > MAX_FRAME_SIZE)
+            throw new IOException("frame of " + size + " bytes exceeds the limit of " + MAX_FRAME_SIZE);
+
+        byte[] body = new byte[(int) size];
+        in.readFully(body);
+        return body;
+    }
+}
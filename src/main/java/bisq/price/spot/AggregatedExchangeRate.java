@@ -0,0 +1,123 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A value object representing the spot price in bitcoin for a given currency as
+ * aggregated from the exchange rates reported for it by all providers, along with those
+ * exchange rates and which of them were left out of the aggregate.
+ *
+ * @see ExchangeRateAggregator
+ */
+public class AggregatedExchangeRate {
+
+    private final String currency;
+    private final double price;
+    private final long timestamp;
+    private final List<ExchangeRate> sources;
+    private final List<String> outliers;
+    private final List<String> stale;
+
+    public AggregatedExchangeRate(String currency, double price, long timestamp, List<ExchangeRate> sources,
+                                  List<String> outliers, List<String> stale) {
+        this.currency = currency;
+        this.price = price;
+        this.timestamp = timestamp;
+        this.sources = sources;
+        this.outliers = outliers;
+        this.stale = stale;
+    }
+
+    @JsonProperty(value = "currencyCode", index = 1)
+    public String getCurrency() {
+        return currency;
+    }
+
+    @JsonProperty(value = "price", index = 2)
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the timestamp of the most recent exchange rate that went into the aggregate
+     */
+    @JsonProperty(value = "timestampSec", index = 3)
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the exchange rates reported for this currency by each provider
+     */
+    @JsonProperty(value = "sources", index = 4)
+    public List<ExchangeRate> getSources() {
+        return sources;
+    }
+
+    /**
+     * @return the providers whose exchange rates were rejected as outliers
+     */
+    @JsonProperty(value = "outliers", index = 5)
+    public List<String> getOutliers() {
+        return outliers;
+    }
+
+    /**
+     * @return the providers whose exchange rates were too old to be taken into account
+     */
+    @JsonProperty(value = "stale", index = 6)
+    public List<String> getStale() {
+        return stale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AggregatedExchangeRate that = (AggregatedExchangeRate) o;
+        return Double.compare(that.price, price) == 0 &&
+            timestamp == that.timestamp &&
+            Objects.equals(currency, that.currency) &&
+            Objects.equals(sources, that.sources) &&
+            Objects.equals(outliers, that.outliers) &&
+            Objects.equals(stale, that.stale);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(currency, price, timestamp, sources, outliers, stale);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregatedExchangeRate{" +
+            "currency='" + currency + '\'' +
+            ", price=" + price +
+            ", timestamp=" + timestamp +
+            ", sources=" + sources +
+            ", outliers=" + outliers +
+            ", stale=" + stale +
+            '}';
+    }
+}
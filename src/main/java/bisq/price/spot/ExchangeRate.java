@@ -17,6 +17,8 @@
 
 package bisq.price.spot;
 
+import bisq.price.util.IdTable;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
@@ -27,13 +29,21 @@ import java.util.Objects;
 /**
  * A value object representing the spot price in bitcoin for a given currency at a given
  * time as reported by a given provider.
+ * <p>
+ * Currency codes and provider names are interned into {@link #CURRENCIES} and
+ * {@link #PROVIDERS} on construction, and only their IDs are kept, such that the codes
+ * parsed anew from each provider response do not outlive the response, and such that
+ * exchange rates can be merged into an {@link ExchangeRateTable} without hashing them.
  */
 public class ExchangeRate {
 
-    private final String currency;
+    static final IdTable CURRENCIES = new IdTable();
+    static final IdTable PROVIDERS = new IdTable();
+
+    private final int currencyId;
     private final double price;
     private final long timestamp;
-    private final String provider;
+    private final int providerId;
 
     public ExchangeRate(String currency, BigDecimal price, Date timestamp, String provider) {
         this(
@@ -45,15 +55,15 @@ public class ExchangeRate {
     }
 
     public ExchangeRate(String currency, double price, long timestamp, String provider) {
-        this.currency = currency;
+        this.currencyId = CURRENCIES.intern(currency);
         this.price = price;
         this.timestamp = timestamp;
-        this.provider = provider;
+        this.providerId = PROVIDERS.intern(provider);
     }
 
     @JsonProperty(value = "currencyCode", index = 1)
     public String getCurrency() {
-        return currency;
+        return CURRENCIES.name(currencyId);
     }
 
     @JsonProperty(value = "price", index = 2)
@@ -68,7 +78,15 @@ public class ExchangeRate {
 
     @JsonProperty(value = "provider", index = 4)
     public String getProvider() {
-        return provider;
+        return PROVIDERS.name(providerId);
+    }
+
+    int getCurrencyId() {
+        return currencyId;
+    }
+
+    int getProviderId() {
+        return providerId;
     }
 
     @Override
@@ -78,22 +96,22 @@ public class ExchangeRate {
         ExchangeRate exchangeRate = (ExchangeRate) o;
         return Double.compare(exchangeRate.price, price) == 0 &&
             timestamp == exchangeRate.timestamp &&
-            Objects.equals(currency, exchangeRate.currency) &&
-            Objects.equals(provider, exchangeRate.provider);
+            currencyId == exchangeRate.currencyId &&
+            providerId == exchangeRate.providerId;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(currency, price, timestamp, provider);
+        return Objects.hash(currencyId, price, timestamp, providerId);
     }
 
     @Override
     public String toString() {
         return "ExchangeRate{" +
-            "currency='" + currency + '\'' +
+            "currency='" + getCurrency() + '\'' +
             ", price=" + price +
             ", timestamp=" + timestamp +
-            ", provider=" + provider +
+            ", provider=" + getProvider() +
             '}';
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Combines the exchange rates reported for each currency by all providers into a single
+ * robust price, rather than letting the provider with the highest precedence override
+ * all others.
+ * <p>
+ * A currency's aggregated price is the median of its providers' prices, after leaving
+ * out prices older than {@link #MAX_AGE} and then rejecting outliers, i.e. prices that
+ * deviate from the median by more than both {@link #OUTLIER_THRESHOLD} scaled median
+ * absolute deviations and {@link #MIN_OUTLIER_DEVIATION} of the median (the latter keeps
+ * a tight cluster of agreeing providers from turning every small difference into an
+ * outlier). The median and median absolute deviation are not skewed by a single
+ * provider reporting a wildly wrong price, as long as the majority of providers agree.
+ * There is no such majority among fewer than three prices: two prices deviate from
+ * their median by the same amount, so neither is ever rejected, and a currency quoted
+ * by only one or two providers is aggregated from all of their recent prices.
+ * <p>
+ * Aggregates are updated incrementally: when a provider refreshes, only the currencies
+ * it reports now or reported before are aggregated anew, and once prices grow older
+ * than {@link #MAX_AGE}, see {@link #expire(long)}, only the currencies they are quoted
+ * in. Instances are not thread-safe.
+ */
+class ExchangeRateAggregator {
+
+    static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private static final double OUTLIER_THRESHOLD = 3;
+    private static final double MIN_OUTLIER_DEVIATION = 0.02;
+
+    // scales the median absolute deviation to be consistent with the standard deviation
+    // for normally distributed prices
+    private static final double MAD_SCALE = 1.4826;
+
+    private final Map<String, Map<String, ExchangeRate>> exchangeRatesByCurrency = new HashMap<>();
+    private final Map<String, Set<String>> currenciesByProvider = new HashMap<>();
+    private final Map<String, AggregatedExchangeRate> aggregates = new TreeMap<>();
+
+    // the time at which the oldest recent price of each currency grows too old
+    private final Map<String, Long> expiries = new HashMap<>();
+
+    /**
+     * Replace the exchange rates of the given provider with the given ones and update
+     * the aggregates of all affected currencies.
+     *
+     * @return whether any aggregate was added, changed or removed
+     */
+    boolean update(String provider, Set<ExchangeRate> exchangeRates, long now) {
+        Set<String> currencies = new HashSet<>();
+        exchangeRates.forEach(e -> currencies.add(e.getCurrency()));
+
+        Set<String> affected = new HashSet<>(currencies);
+        Set<String> previous = currenciesByProvider.put(provider, currencies);
+        if (previous != null) {
+            affected.addAll(previous);
+            previous.forEach(currency -> exchangeRatesByCurrency.get(currency).remove(provider));
+        }
+        exchangeRates.forEach(e ->
+            exchangeRatesByCurrency.computeIfAbsent(e.getCurrency(), c -> new TreeMap<>()).put(provider, e)
+        );
+
+        boolean changed = false;
+        for (String currency : affected)
+            changed |= reaggregate(currency, now);
+        return changed;
+    }
+
+    /**
+     * Update the aggregates of all currencies with prices that have grown older than
+     * {@link #MAX_AGE} since they were last aggregated, as the providers of these prices
+     * may not refresh again anytime soon, if ever.
+     *
+     * @return whether any aggregate was changed or removed
+     */
+    boolean expire(long now) {
+        List<String> expired = new ArrayList<>();
+        expiries.forEach((currency, expiry) -> {
+            if (expiry <= now)
+                expired.add(currency);
+        });
+
+        boolean changed = false;
+        for (String currency : expired)
+            changed |= reaggregate(currency, now);
+        return changed;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch at which {@link #expire(long)}
+     * will next find a price grown too old, or {@link Long#MAX_VALUE} if none will
+     */
+    long getNextExpiry() {
+        return expiries.values().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE);
+    }
+
+    private boolean reaggregate(String currency, long now) {
+        Map<String, ExchangeRate> exchangeRatesByProvider = exchangeRatesByCurrency.get(currency);
+        if (exchangeRatesByProvider.isEmpty())
+            exchangeRatesByCurrency.remove(currency);
+
+        long expiry = exchangeRatesByProvider.values().stream()
+            .mapToLong(e -> e.getTimestamp() + MAX_AGE.toMillis() + 1)
+            .filter(t -> t > now)
+            .min().orElse(Long.MAX_VALUE);
+        if (expiry != Long.MAX_VALUE)
+            expiries.put(currency, expiry);
+        else
+            expiries.remove(currency);
+
+        AggregatedExchangeRate aggregate = aggregate(currency, exchangeRatesByProvider, now);
+        AggregatedExchangeRate replaced = aggregate != null ?
+            aggregates.put(currency, aggregate) :
+            aggregates.remove(currency);
+        return !Objects.equals(aggregate, replaced);
+    }
+
+    /**
+     * @return the current aggregates, sorted by currency code
+     */
+    Map<String, AggregatedExchangeRate> getAggregates() {
+        return Collections.unmodifiableMap(aggregates);
+    }
+
+    /**
+     * @return the aggregate of the given exchange rates, or null if there are none
+     * recent enough
+     */
+    private static AggregatedExchangeRate aggregate(String currency, Map<String, ExchangeRate> exchangeRates,
+                                                    long now) {
+        if (exchangeRates.isEmpty())
+            return null;
+
+        List<ExchangeRate> recent = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        for (ExchangeRate exchangeRate : exchangeRates.values()) {
+            if (now - exchangeRate.getTimestamp() > MAX_AGE.toMillis())
+                stale.add(exchangeRate.getProvider());
+            else
+                recent.add(exchangeRate);
+        }
+        if (recent.isEmpty())
+            return null;
+
+        double[] prices = recent.stream().mapToDouble(ExchangeRate::getPrice).toArray();
+        double median = median(prices);
+        double[] deviations = Arrays.stream(prices).map(p -> Math.abs(p - median)).toArray();
+        double maxDeviation = Math.max(
+            OUTLIER_THRESHOLD * MAD_SCALE * median(deviations),
+            MIN_OUTLIER_DEVIATION * Math.abs(median));
+
+        List<String> outliers = new ArrayList<>();
+        double[] accepted = new double[prices.length];
+        int acceptedCount = 0;
+        long timestamp = 0;
+        for (ExchangeRate exchangeRate : recent) {
+            if (Math.abs(exchangeRate.getPrice() - median) > maxDeviation) {
+                outliers.add(exchangeRate.getProvider());
+            } else {
+                accepted[acceptedCount++] = exchangeRate.getPrice();
+                timestamp = Math.max(timestamp, exchangeRate.getTimestamp());
+            }
+        }
+
+        return new AggregatedExchangeRate(currency, median(Arrays.copyOf(accepted, acceptedCount)), timestamp,
+            new ArrayList<>(exchangeRates.values()), outliers, stale);
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+}
@@ -19,10 +19,17 @@ package bisq.price.spot;
 
 import bisq.price.PriceController;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 class ExchangeRateController extends PriceController {
@@ -33,8 +40,43 @@ class ExchangeRateController extends PriceController {
         this.exchangeRateService = exchangeRateService;
     }
 
+    /**
+     * Serve all market prices, or only those of the given comma-separated currencies
+     * and/or the given provider, e.g. {@code /getAllMarketPrices?currencies=USD,EUR,XMR}.
+     */
     @GetMapping(path = "/getAllMarketPrices")
-    public Map<String, Object> getAllMarketPrices() {
-        return exchangeRateService.getAllMarketPrices();
+    public ResponseEntity<byte[]> getAllMarketPrices(
+        @RequestParam(name = "currencies", required = false) String currencies,
+        @RequestParam(name = "provider", required = false) String provider,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return respond(exchangeRateService.getAllMarketPrices(currencyCodes(currencies), provider), acceptEncoding);
+    }
+
+    @GetMapping(path = "/exchange-rates")
+    public ResponseEntity<byte[]> getExchangeRates(
+        @RequestParam(name = "since", required = false) Long since,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return respond(exchangeRateService.getExchangeRates(since), acceptEncoding);
+    }
+
+    @GetMapping(path = "/exchange-rates/aggregated")
+    public ResponseEntity<byte[]> getAggregatedExchangeRates(
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return respond(exchangeRateService.getAggregatedExchangeRates(), acceptEncoding);
+    }
+
+    @GetMapping(path = "/exchange-rates/stream")
+    public SseEmitter streamExchangeRates() {
+        return exchangeRateService.subscribe();
+    }
+
+    private static Set<String> currencyCodes(String currencies) {
+        if (currencies == null)
+            return null;
+
+        return Arrays.stream(currencies.split(","))
+            .map(c -> c.trim().toUpperCase())
+            .filter(c -> !c.isEmpty())
+            .collect(Collectors.toSet());
     }
 }
@@ -19,8 +19,14 @@ package bisq.price.spot;
 
 import bisq.price.PriceProvider;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import java.time.Duration;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -33,19 +39,39 @@ import java.util.Set;
  * higher order value will taking precedence over the provider with a lower value,
  * presuming that such providers are being iterated over in an ordered list.
  *
- * @see ExchangeRateService#ExchangeRateService(java.util.List)
+ * <p>
+ * Providers adapt their refresh interval to how fast prices move: whenever the median
+ * price change across all currencies since the previous refresh reaches
+ * {@link #VOLATILE_CHANGE}, the interval is halved, and whenever it stays below
+ * {@link #FLAT_CHANGE}, the interval is lengthened by a quarter, up to four times the
+ * configured refresh interval. As upstream APIs may rate limit or meter requests, the
+ * interval is not shortened below the configured one, unless a provider otherwise
+ * limits its requests, see {@link #getMinRefreshInterval()}.
+ *
+ * @see ExchangeRateService#ExchangeRateService(java.util.List,
+ * com.fasterxml.jackson.databind.ObjectMapper, io.micrometer.core.instrument.MeterRegistry)
  */
 public abstract class ExchangeRateProvider extends PriceProvider<Set<ExchangeRate>> {
 
+    static final double VOLATILE_CHANGE = 0.005;
+    static final double FLAT_CHANGE = 0.001;
+
+    private static final int MAX_INTERVAL_FACTOR = 4;
+
     private final String name;
     private final String prefix;
 
+    private volatile Duration nextRefreshDelay;
+    private double[] previousPrices = new double[0];
+
     public ExchangeRateProvider(String name, String prefix, Duration refreshInterval) {
         super(refreshInterval);
         this.name = name;
         this.prefix = prefix;
+        this.nextRefreshDelay = refreshInterval;
     }
 
+    @Override
     public String getName() {
         return name;
     }
@@ -54,10 +80,80 @@ public abstract class ExchangeRateProvider extends PriceProvider<Set<ExchangeRat
         return prefix;
     }
 
+    @Override
+    protected final void writeResult(DataOutput out, Set<ExchangeRate> exchangeRates) throws IOException {
+        out.writeInt(exchangeRates.size());
+        for (ExchangeRate exchangeRate : exchangeRates) {
+            out.writeUTF(exchangeRate.getCurrency());
+            out.writeDouble(exchangeRate.getPrice());
+            out.writeLong(exchangeRate.getTimestamp());
+            out.writeUTF(exchangeRate.getProvider());
+        }
+    }
+
+    @Override
+    protected final Set<ExchangeRate> readResult(DataInput in) throws IOException {
+        int size = in.readInt();
+        Set<ExchangeRate> exchangeRates = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++)
+            exchangeRates.add(new ExchangeRate(in.readUTF(), in.readDouble(), in.readLong(), in.readUTF()));
+        return exchangeRates;
+    }
+
+    @Override
+    protected Duration getNextRefreshDelay() {
+        return nextRefreshDelay;
+    }
+
+    /**
+     * @return the shortest interval refreshes may adapt to; the configured refresh
+     * interval unless overridden, e.g. by providers whose requests are paced by a
+     * {@link bisq.price.RequestQuota} anyway
+     */
+    protected Duration getMinRefreshInterval() {
+        return refreshInterval;
+    }
+
     @Override
     protected void onRefresh() {
         get().stream()
             .filter(e -> "USD".equals(e.getCurrency()) || "LTC".equals(e.getCurrency()))
             .forEach(e -> log.info("BTC/{}: {}", e.getCurrency(), e.getPrice()));
+
+        // previous prices are kept by currency ID, NaN where there was none
+        double[] prices = new double[ExchangeRate.CURRENCIES.size()];
+        Arrays.fill(prices, Double.NaN);
+        double[] changes = new double[get().size()];
+        int changeCount = 0;
+        for (ExchangeRate exchangeRate : get()) {
+            int id = exchangeRate.getCurrencyId();
+            double previousPrice = id < previousPrices.length ? previousPrices[id] : Double.NaN;
+            if (previousPrice != 0 && !Double.isNaN(previousPrice))
+                changes[changeCount++] = Math.abs(exchangeRate.getPrice() / previousPrice - 1);
+            prices[id] = exchangeRate.getPrice();
+        }
+        previousPrices = prices;
+
+        if (changeCount > 0) {
+            Arrays.sort(changes, 0, changeCount);
+            adaptRefreshDelay(changes[changeCount / 2]);
+        }
+    }
+
+    private void adaptRefreshDelay(double medianChange) {
+        Duration delay = nextRefreshDelay;
+        if (medianChange >= VOLATILE_CHANGE)
+            delay = delay.dividedBy(2);
+        else if (medianChange < FLAT_CHANGE)
+            delay = delay.plus(delay.dividedBy(4));
+
+        Duration min = getMinRefreshInterval();
+        Duration max = refreshInterval.multipliedBy(MAX_INTERVAL_FACTOR);
+        delay = Duration.ofMillis((delay.compareTo(min) < 0 ? min : delay.compareTo(max) > 0 ? max : delay).toMillis());
+
+        if (!delay.equals(nextRefreshDelay))
+            log.debug("median price change of {}% since previous refresh, will refresh again in {}",
+                String.format("%.3f", medianChange * 100), delay);
+        nextRefreshDelay = delay;
     }
 }
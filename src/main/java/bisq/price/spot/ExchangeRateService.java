@@ -17,16 +17,26 @@
 
 package bisq.price.spot;
 
+import bisq.price.Snapshot;
+import bisq.price.SnapshotPart;
+import bisq.price.UpdateBroadcaster;
 import bisq.price.spot.providers.BitcoinAverage;
 
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,10 +45,18 @@ import org.slf4j.LoggerFactory;
  * High-level {@link ExchangeRate} data operations.
  */
 @Service
-class ExchangeRateService {
+class ExchangeRateService implements SnapshotPart {
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
 
     private final List<ExchangeRateProvider> providers;
+    private final ObjectMapper mapper;
+    private final UpdateBroadcaster updates;
+    private final ExchangeRateAggregator aggregator = new ExchangeRateAggregator();
+    private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ExchangeRateSnapshot snapshot;
+    private volatile Snapshot aggregates;
+    private volatile long aggregatesExpire = Long.MAX_VALUE;
 
     /**
      * Construct an {@link ExchangeRateService} with a list of all
@@ -46,46 +64,178 @@ class ExchangeRateService {
      *
      * @param providers all {@link ExchangeRateProvider} implementations in ascending
      *                  order of precedence
+     * @param mapper    the application-wide {@link ObjectMapper} used to serialize
+     *                  snapshots
+     * @param meterRegistry the registry to publish payload sizes and exchange rate
+     *                  counts to
      */
-    public ExchangeRateService(List<ExchangeRateProvider> providers) {
+    public ExchangeRateService(List<ExchangeRateProvider> providers, ObjectMapper mapper,
+                               MeterRegistry meterRegistry) {
         this.providers = providers;
+        this.mapper = mapper;
+        this.updates = new UpdateBroadcaster(mapper, "prices", "prices-delta");
+        this.snapshot = ExchangeRateSnapshot.initial(mapper);
+        this.aggregates = toAggregatesSnapshot();
+
+        providers.forEach(p -> p.addRefreshListener(() -> refresh(p)));
+
+        registerPayloadSizeGauges(meterRegistry, "getAllMarketPrices", ExchangeRateSnapshot::getAllMarketPrices);
+        registerPayloadSizeGauges(meterRegistry, "exchange-rates", ExchangeRateSnapshot::getFull);
+        registerPayloadSizeGauges(meterRegistry, "exchange-rates/aggregated", s -> aggregates);
+
+        Gauge.builder("pricenode.exchange.rates", this, s -> s.snapshot.getExchangeRates().size())
+            .description("Number of currencies with an exchange rate")
+            .register(meterRegistry);
+
+        providers.forEach(p ->
+            Gauge.builder("pricenode.provider.rates", p, ExchangeRateService::rateCount)
+                .description("Number of exchange rates in the provider's current result")
+                .tag("provider", p.getName())
+                .register(meterRegistry)
+        );
+    }
+
+    /**
+     * @return the most recent snapshot of all market prices, as rebuilt each time any
+     * {@link ExchangeRateProvider} refreshes its data
+     */
+    public Snapshot getAllMarketPrices() {
+        return snapshot.getAllMarketPrices();
+    }
+
+    /**
+     * @param currencies the codes of the currencies to restrict market prices to, or null
+     *                   for all currencies
+     * @param provider   the name of the provider to restrict market prices to, or null
+     *                   for all providers
+     * @return the most recent market prices of the given currencies and provider, in
+     * the same format as {@link #getAllMarketPrices()}; unless both are null, serialized
+     * on demand from an index of the most recent snapshot
+     */
+    public Snapshot getAllMarketPrices(Set<String> currencies, String provider) {
+        return snapshot.getAllMarketPrices(currencies, provider);
     }
 
-    public Map<String, Object> getAllMarketPrices() {
+    /**
+     * @param since the version of exchange rate data the client already has, if any
+     * @return the exchange rates added, changed or removed since the given version, or
+     * all exchange rates if no version is given or the given version is unknown
+     * @see ExchangeRateSnapshot#getDelta(long)
+     */
+    public Snapshot getExchangeRates(Long since) {
+        ExchangeRateSnapshot snapshot = this.snapshot;
+        return since != null ? snapshot.getDelta(since) : snapshot.getFull();
+    }
+
+    /**
+     * @return the most recent aggregate exchange rate of each currency, along with the
+     * exchange rates of all providers it was aggregated from
+     * @see ExchangeRateAggregator
+     */
+    public Snapshot getAggregatedExchangeRates() {
+        // a currency only quoted by providers that no longer refresh would otherwise keep
+        // its aggregate, so prices growing too old are left out as they are read
+        if (System.currentTimeMillis() >= aggregatesExpire)
+            expireAggregates();
+
+        return aggregates;
+    }
+
+    /**
+     * @return "prices", the part of combined snapshots carrying the same data as
+     * {@link #getAllMarketPrices()}
+     */
+    @Override
+    public String getPartName() {
+        return "prices";
+    }
+
+    @Override
+    public View getView() {
+        ExchangeRateSnapshot snapshot = this.snapshot;
+        return currencies -> snapshot.toAllMarketPrices(currencies, null);
+    }
+
+    @Override
+    public void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * Subscribe to a stream of server-sent events that starts with a "prices" event
+     * carrying the same data as {@link #getExchangeRates(Long)} without a version,
+     * followed by a "prices-delta" event carrying the changes since the previous version
+     * after each refresh.
+     */
+    public SseEmitter subscribe() {
+        return updates.subscribe();
+    }
+
+    private void registerPayloadSizeGauges(MeterRegistry meterRegistry, String payload,
+                                           Function<ExchangeRateSnapshot, Snapshot> snapshotFn) {
+        Gauge.builder("pricenode.payload.size", this, s -> snapshotFn.apply(s.snapshot).getJson().length)
+            .description("Size of the most recent response payload")
+            .tags("payload", payload, "encoding", "identity")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("pricenode.payload.size", this, s -> snapshotFn.apply(s.snapshot).getGzippedJson().length)
+            .description("Size of the most recent response payload")
+            .tags("payload", payload, "encoding", "gzip")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    private static int rateCount(ExchangeRateProvider provider) {
+        return provider.isRunning() ? provider.get().size() : 0;
+    }
+
+    private synchronized void refresh(ExchangeRateProvider refreshed) {
         Map<String, Object> metadata = new LinkedHashMap<>();
-        Map<String, ExchangeRate> allExchangeRates = new LinkedHashMap<>();
+        ExchangeRateTable.Builder allExchangeRates = new ExchangeRateTable.Builder();
+        List<String> stale = new ArrayList<>();
 
-        providers.forEach(p -> {
+        // providers that have not yet completed their first refresh have nothing to contribute
+        providers.stream().filter(ExchangeRateProvider::isRunning).forEach(p -> {
             Set<ExchangeRate> exchangeRates = p.get();
             metadata.putAll(getMetadata(p, exchangeRates));
-            exchangeRates.forEach(e ->
-                allExchangeRates.put(e.getCurrency(), e)
-            );
+            allExchangeRates.putAll(exchangeRates);
+            if (p.isStale())
+                stale.add(p.getName());
         });
 
-        return new LinkedHashMap<String, Object>() {{
-            putAll(metadata);
-            // Use a sorted list by currency code to make comparision of json data between different
-            // price nodes easier
-            List<ExchangeRate> values = new ArrayList<>(allExchangeRates.values());
-            values.sort(Comparator.comparing(ExchangeRate::getCurrency));
-            put("data", values);
-        }};
+        // only present while any provider serves its last good result rather than a current one
+        if (!stale.isEmpty())
+            metadata.put("stale", stale);
+
+        snapshot = snapshot.next(metadata, allExchangeRates.build());
+        updates.publish(snapshot::toFull, snapshot::toLatestDelta);
+        updateListeners.forEach(Runnable::run);
+
+        if (aggregator.update(refreshed.getName(), refreshed.get(), System.currentTimeMillis()))
+            aggregates = toAggregatesSnapshot();
+        aggregatesExpire = aggregator.getNextExpiry();
+    }
+
+    private synchronized void expireAggregates() {
+        if (aggregator.expire(System.currentTimeMillis()))
+            aggregates = toAggregatesSnapshot();
+        aggregatesExpire = aggregator.getNextExpiry();
+    }
+
+    private Snapshot toAggregatesSnapshot() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("maxAgeSec", ExchangeRateAggregator.MAX_AGE.getSeconds());
+        map.put("data", new ArrayList<>(aggregator.getAggregates().values()));
+        return Snapshot.of(mapper, map);
     }
 
     private Map<String, Object> getMetadata(ExchangeRateProvider provider, Set<ExchangeRate> exchangeRates) {
         Map<String, Object> metadata = new LinkedHashMap<>();
 
-        // In case a provider is not available we still want to deliver the data of the other providers, so we catch
-        // a possible exception and leave timestamp at 0. The Bisq app will check if the timestamp is in a tolerance
-        // window and if it is too old it will show that the price is not available.
-        long timestamp = 0;
-        try {
-            timestamp = getTimestamp(provider, exchangeRates);
-        } catch (Throwable t) {
-            log.error(t.toString());
-            t.printStackTrace();
-        }
+        // In case a provider has no data we still want to deliver the data of the other providers, so we leave the
+        // timestamp at 0. The Bisq app will check if the timestamp is in a tolerance window and if it is too old it
+        // will show that the price is not available.
+        long timestamp = getTimestamp(exchangeRates);
 
         if (provider instanceof BitcoinAverage.Local) {
             metadata.put("btcAverageTs", timestamp);
@@ -98,11 +248,13 @@ class ExchangeRateService {
         return metadata;
     }
 
-    private long getTimestamp(ExchangeRateProvider provider, Set<ExchangeRate> exchangeRates) {
-        return exchangeRates.stream()
-            .filter(e -> provider.getName().equals(e.getProvider()))
-            .findFirst()
-            .orElseThrow(() -> new IllegalStateException("No exchange rate data found for " + provider.getName()))
-            .getTimestamp();
+    /**
+     * @return the most recent timestamp of the given exchange rates, or 0 if there are none
+     */
+    private static long getTimestamp(Set<ExchangeRate> exchangeRates) {
+        long timestamp = 0;
+        for (ExchangeRate exchangeRate : exchangeRates)
+            timestamp = Math.max(timestamp, exchangeRate.getTimestamp());
+        return timestamp;
     }
 }
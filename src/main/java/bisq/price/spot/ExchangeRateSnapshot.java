@@ -0,0 +1,220 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot;
+
+import bisq.price.Snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, versioned view of all {@link ExchangeRate}s as of a given provider
+ * refresh, along with its pre-serialized representations.
+ * <p>
+ * Versions increase by one with each refresh, starting from the time at which the
+ * service was created such that versions handed out by an earlier run of the
+ * application are recognized as unknown rather than mistaken for current ones. For
+ * every currency, the snapshot tracks the version in which its exchange rate was last
+ * added, changed or removed, which allows it to tell any client which exchange rates
+ * changed since whatever version the client last saw. Exchange rates, as well as the
+ * versions they were last changed or removed in, are kept in arrays indexed by
+ * currency ID, see {@link ExchangeRateTable}.
+ */
+class ExchangeRateSnapshot {
+
+    /**
+     * The number of versions preceding the current one for which serialized deltas are
+     * cached, as most clients poll for changes since one of the last few versions.
+     */
+    private static final int CACHED_DELTAS = 16;
+
+    private final ObjectMapper mapper;
+
+    private final long version;
+    private final long initialVersion;
+    private final Map<String, Object> metadata;
+    private final ExchangeRateTable exchangeRates;
+
+    // the version each currency's exchange rate was last added or changed in, or was
+    // removed in, by currency ID, or 0 if none
+    private final long[] changedIn;
+    private final long[] removedIn;
+
+    private final Snapshot allMarketPrices;
+    private final Snapshot full;
+    private final Map<Long, Snapshot> deltas = new ConcurrentHashMap<>();
+
+    private ExchangeRateSnapshot(ObjectMapper mapper,
+                                 long version,
+                                 long initialVersion,
+                                 Map<String, Object> metadata,
+                                 ExchangeRateTable exchangeRates,
+                                 long[] changedIn,
+                                 long[] removedIn) {
+        this.mapper = mapper;
+        this.version = version;
+        this.initialVersion = initialVersion;
+        this.metadata = metadata;
+        this.exchangeRates = exchangeRates;
+        this.changedIn = changedIn;
+        this.removedIn = removedIn;
+        this.allMarketPrices = Snapshot.of(mapper, toAllMarketPrices(null, null));
+        this.full = Snapshot.of(mapper, toDelta(initialVersion - 1));
+    }
+
+    /**
+     * @return an empty snapshot to be succeeded by snapshots of actual data
+     */
+    static ExchangeRateSnapshot initial(ObjectMapper mapper) {
+        long version = System.currentTimeMillis();
+        return new ExchangeRateSnapshot(mapper, version, version,
+            Collections.emptyMap(), ExchangeRateTable.EMPTY, new long[0], new long[0]);
+    }
+
+    /**
+     * @return the snapshot succeeding this one, consisting of the given data
+     */
+    ExchangeRateSnapshot next(Map<String, Object> metadata, ExchangeRateTable exchangeRates) {
+        long nextVersion = version + 1;
+        int capacity = Math.max(exchangeRates.capacity(), changedIn.length);
+        long[] nextChangedIn = Arrays.copyOf(changedIn, capacity);
+        long[] nextRemovedIn = Arrays.copyOf(removedIn, capacity);
+
+        for (int id = 0; id < capacity; id++) {
+            if (exchangeRates.sameAs(this.exchangeRates, id))
+                continue;
+
+            if (exchangeRates.contains(id)) {
+                nextChangedIn[id] = nextVersion;
+                nextRemovedIn[id] = 0;
+            } else {
+                nextChangedIn[id] = 0;
+                nextRemovedIn[id] = nextVersion;
+            }
+        }
+
+        // exchange rates are serialized sorted by currency code to make comparison of
+        // json data between different price nodes easier
+        return new ExchangeRateSnapshot(mapper, nextVersion, initialVersion,
+            Collections.unmodifiableMap(new LinkedHashMap<>(metadata)),
+            exchangeRates, nextChangedIn, nextRemovedIn);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    ExchangeRateTable getExchangeRates() {
+        return exchangeRates;
+    }
+
+    /**
+     * @return all market prices in the format of the legacy /getAllMarketPrices endpoint
+     */
+    Snapshot getAllMarketPrices() {
+        return allMarketPrices;
+    }
+
+    /**
+     * @return the market prices of the given currencies and provider, or of all if
+     * both are null, in the format of the legacy /getAllMarketPrices endpoint
+     * @see #toAllMarketPrices(Set, String)
+     */
+    Snapshot getAllMarketPrices(Set<String> currencies, String provider) {
+        if (currencies == null && provider == null)
+            return allMarketPrices;
+
+        return Snapshot.of(mapper, toAllMarketPrices(currencies, provider));
+    }
+
+    /**
+     * @return all exchange rates, along with the version they are current as of
+     */
+    Snapshot getFull() {
+        return full;
+    }
+
+    /**
+     * @return the exchange rates added, changed or removed since the given version, or
+     * all exchange rates if the given version is unknown, i.e. did not originate from
+     * this run of the application
+     */
+    Snapshot getDelta(long since) {
+        if (since < initialVersion || since > version)
+            return full;
+
+        if (since >= version - CACHED_DELTAS)
+            return deltas.computeIfAbsent(since, v -> Snapshot.of(mapper, toDelta(v)));
+
+        return Snapshot.of(mapper, toDelta(since));
+    }
+
+    /**
+     * @return the exchange rates added, changed or removed in this version, to be pushed
+     * to subscribers that already have the previous version
+     */
+    Map<String, Object> toLatestDelta() {
+        return toDelta(version - 1);
+    }
+
+    Map<String, Object> toFull() {
+        return toDelta(initialVersion - 1);
+    }
+
+    /**
+     * @param currencies the codes of the currencies to restrict exchange rates to, or
+     *                   null for all currencies
+     * @param provider   the name of the provider to restrict exchange rates to, or null
+     *                   for all providers
+     * @return the given currencies' market prices in the format of the legacy
+     * /getAllMarketPrices endpoint
+     */
+    Map<String, Object> toAllMarketPrices(Set<String> currencies, String provider) {
+        Map<String, Object> allMarketPrices = new LinkedHashMap<>(metadata);
+        allMarketPrices.put("data", exchangeRates.select(currencies, provider));
+        return allMarketPrices;
+    }
+
+    private Map<String, Object> toDelta(long since) {
+        boolean delta = since >= initialVersion;
+
+        List<String> removed = new ArrayList<>();
+        if (delta) {
+            for (int id : ExchangeRate.CURRENCIES.sortedIds())
+                if (id < removedIn.length && removedIn[id] > since)
+                    removed.add(ExchangeRate.CURRENCIES.name(id));
+        }
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("version", version);
+        map.put("delta", delta);
+        map.putAll(metadata);
+        map.put("data", exchangeRates.select(id -> changedIn[id] > since));
+        map.put("removed", removed);
+        return map;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable table of at most one {@link ExchangeRate} per currency, stored as
+ * parallel primitive arrays indexed by the currency's ID in
+ * {@link ExchangeRate#CURRENCIES}, such that looking up, comparing and serializing the
+ * exchange rate of a currency involves neither hashing nor any object per exchange rate.
+ * <p>
+ * Tables are serialized through {@link Rows}, a flyweight view over a selection of
+ * currencies that writes each exchange rate straight from the arrays, in the same
+ * format and order, i.e. by currency code, as a list of {@link ExchangeRate}s would be.
+ * <p>
+ * On construction, tables index the currencies they hold, in order of their codes,
+ * overall and by provider, such that selecting the exchange rates of given currencies
+ * or of a given provider costs as much as the selection is large, rather than as much
+ * as the whole table.
+ */
+final class ExchangeRateTable {
+
+    static final ExchangeRateTable EMPTY = new Builder(0).build();
+
+    private static final int NONE = -1;
+    private static final int[] NO_IDS = new int[0];
+
+    private final double[] prices;
+    private final long[] timestamps;
+    private final int[] providerIds;
+    private final int size;
+
+    // the IDs of all currencies in this table, and of those of each provider by
+    // provider ID, in order of their codes
+    private final int[] sortedIds;
+    private final int[][] sortedIdsByProvider;
+
+    private ExchangeRateTable(double[] prices, long[] timestamps, int[] providerIds, int size) {
+        this.prices = prices;
+        this.timestamps = timestamps;
+        this.providerIds = providerIds;
+        this.size = size;
+
+        int[] sortedIds = new int[size];
+        int[] providerSizes = new int[ExchangeRate.PROVIDERS.size()];
+        int i = 0;
+        for (int id : ExchangeRate.CURRENCIES.sortedIds()) {
+            if (contains(id)) {
+                sortedIds[i++] = id;
+                providerSizes[providerIds[id]]++;
+            }
+        }
+        int[][] sortedIdsByProvider = new int[providerSizes.length][];
+        for (int providerId = 0; providerId < providerSizes.length; providerId++)
+            sortedIdsByProvider[providerId] = new int[providerSizes[providerId]];
+        Arrays.fill(providerSizes, 0);
+        for (int id : sortedIds)
+            sortedIdsByProvider[providerIds[id]][providerSizes[providerIds[id]]++] = id;
+
+        this.sortedIds = sortedIds;
+        this.sortedIdsByProvider = sortedIdsByProvider;
+    }
+
+    /**
+     * @return the number of currencies with an exchange rate
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return one greater than the largest currency ID this table may hold an exchange
+     * rate for
+     */
+    int capacity() {
+        return providerIds.length;
+    }
+
+    boolean contains(int currencyId) {
+        return currencyId < providerIds.length && providerIds[currencyId] != NONE;
+    }
+
+    double getPrice(int currencyId) {
+        return prices[currencyId];
+    }
+
+    long getTimestamp(int currencyId) {
+        return timestamps[currencyId];
+    }
+
+    int getProviderId(int currencyId) {
+        return providerIds[currencyId];
+    }
+
+    /**
+     * @return whether this and the given table hold equal exchange rates, or both none,
+     * for the given currency
+     */
+    boolean sameAs(ExchangeRateTable other, int currencyId) {
+        boolean contained = contains(currencyId);
+        if (contained != other.contains(currencyId))
+            return false;
+
+        return !contained ||
+            Double.compare(prices[currencyId], other.prices[currencyId]) == 0 &&
+                timestamps[currencyId] == other.timestamps[currencyId] &&
+                providerIds[currencyId] == other.providerIds[currencyId];
+    }
+
+    /**
+     * @return a view of all exchange rates in this table
+     */
+    Rows all() {
+        return new Rows(sortedIds);
+    }
+
+    /**
+     * @param currencies the codes of the currencies to select, or null for all
+     * @param provider   the name of the provider to select the exchange rates of, or
+     *                   null for those of all providers
+     * @return a view of the exchange rates of the given currencies and provider
+     */
+    Rows select(Set<String> currencies, String provider) {
+        int providerId = provider != null ? ExchangeRate.PROVIDERS.lookup(provider) : NONE;
+        if (provider != null && (providerId == NONE || providerId >= sortedIdsByProvider.length))
+            return new Rows(NO_IDS);
+
+        if (currencies == null)
+            return new Rows(provider != null ? sortedIdsByProvider[providerId] : sortedIds);
+
+        int[] ids = currencies.stream()
+            .sorted()
+            .mapToInt(ExchangeRate.CURRENCIES::lookup)
+            .filter(id -> id != NONE && contains(id) && (provider == null || providerIds[id] == providerId))
+            .toArray();
+        return new Rows(ids);
+    }
+
+    /**
+     * @return a view of the exchange rates of all currencies matching the given
+     * predicate, which is tested against currency IDs
+     */
+    Rows select(IntPredicate currencyIds) {
+        return new Rows(Arrays.stream(sortedIds).filter(currencyIds).toArray());
+    }
+
+
+    /**
+     * A flyweight, serializable view of a selection of the exchange rates of a table,
+     * i.e. what serializing a list of {@link ExchangeRate}s would produce, without
+     * creating any of them.
+     */
+    final class Rows implements JsonSerializable {
+
+        private final int[] currencyIds;
+
+        private Rows(int[] currencyIds) {
+            this.currencyIds = currencyIds;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartArray();
+            for (int id : currencyIds) {
+                gen.writeStartObject();
+                gen.writeStringField("currencyCode", ExchangeRate.CURRENCIES.name(id));
+                gen.writeNumberField("price", prices[id]);
+                gen.writeNumberField("timestampSec", timestamps[id]);
+                gen.writeStringField("provider", ExchangeRate.PROVIDERS.name(providerIds[id]));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers,
+                                      TypeSerializer typeSer) throws IOException {
+            serialize(gen, serializers);
+        }
+    }
+
+
+    /**
+     * Collects exchange rates into a new table, later ones for a given currency
+     * replacing earlier ones. Builders are not thread-safe.
+     */
+    static final class Builder {
+
+        private double[] prices;
+        private long[] timestamps;
+        private int[] providerIds;
+        private int size;
+
+        Builder() {
+            this(ExchangeRate.CURRENCIES.size());
+        }
+
+        private Builder(int capacity) {
+            this.prices = new double[capacity];
+            this.timestamps = new long[capacity];
+            this.providerIds = new int[capacity];
+            Arrays.fill(providerIds, NONE);
+        }
+
+        Builder put(ExchangeRate exchangeRate) {
+            int id = exchangeRate.getCurrencyId();
+            if (id >= providerIds.length)
+                grow(Math.max(id + 1, ExchangeRate.CURRENCIES.size()));
+
+            if (providerIds[id] == NONE)
+                size++;
+            prices[id] = exchangeRate.getPrice();
+            timestamps[id] = exchangeRate.getTimestamp();
+            providerIds[id] = exchangeRate.getProviderId();
+            return this;
+        }
+
+        Builder putAll(Collection<ExchangeRate> exchangeRates) {
+            exchangeRates.forEach(this::put);
+            return this;
+        }
+
+        ExchangeRateTable build() {
+            ExchangeRateTable table = new ExchangeRateTable(prices, timestamps, providerIds, size);
+            prices = null;
+            timestamps = null;
+            providerIds = null;
+            return table;
+        }
+
+        private void grow(int capacity) {
+            int previous = providerIds.length;
+            prices = Arrays.copyOf(prices, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            providerIds = Arrays.copyOf(providerIds, capacity);
+            Arrays.fill(providerIds, previous, capacity, NONE);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot.history;
+
+import bisq.price.spot.ExchangeRate;
+import bisq.price.spot.ExchangeRateProvider;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the {@link ExchangeRate}s reported by each {@link ExchangeRateProvider} into
+ * one {@link TimeSeries} per currency and provider, and answers range queries over them.
+ */
+@Component
+class PriceHistory {
+
+    private final Map<String, Map<String, TimeSeries>> seriesByCurrency = new ConcurrentHashMap<>();
+
+    public PriceHistory(List<ExchangeRateProvider> providers) {
+        providers.forEach(p -> p.addRefreshListener(() -> record(p)));
+    }
+
+    private void record(ExchangeRateProvider provider) {
+        for (ExchangeRate exchangeRate : provider.get()) {
+            seriesByCurrency
+                .computeIfAbsent(exchangeRate.getCurrency(), c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(exchangeRate.getProvider(), p -> new TimeSeries())
+                .record(exchangeRate.getTimestamp() / 1000, exchangeRate.getPrice());
+        }
+    }
+
+    /**
+     * @param currency   the currency code to query the history of
+     * @param provider   the name of the provider to query the history of, or
+     *                   {@code null} for all providers
+     * @param from       the start of the range to query, in epoch seconds
+     * @param to         the end of the range to query, in epoch seconds
+     * @param resolution the interval, in seconds, within which only the last price is
+     *                   returned
+     * @return one entry per provider, each listing timestamps and prices in two arrays
+     */
+    public List<Map<String, Object>> query(String currency, String provider, long from, long to, long resolution) {
+        List<Map<String, Object>> result = new ArrayList<>();
+
+        seriesByCurrency.getOrDefault(currency, Collections.emptyMap()).forEach((seriesProvider, series) -> {
+            if (provider != null && !provider.equals(seriesProvider))
+                return;
+
+            Points points = new Points();
+            series.query(from, to, resolution, points::add);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("currencyCode", currency);
+            entry.put("provider", seriesProvider);
+            entry.put("resolutionSec", resolution);
+            entry.put("timestampsSec", points.timestamps());
+            entry.put("prices", points.prices());
+            result.add(entry);
+        });
+
+        return result;
+    }
+
+    /**
+     * @return the approximate number of bytes occupied by all recorded points
+     */
+    public long sizeInBytes() {
+        return seriesByCurrency.values().stream()
+            .flatMap(m -> m.values().stream())
+            .mapToLong(TimeSeries::sizeInBytes)
+            .sum();
+    }
+
+
+    private static class Points {
+
+        private long[] timestamps = new long[256];
+        private double[] prices = new double[256];
+        private int size;
+
+        void add(long timestamp, double price) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            timestamps[size] = timestamp;
+            prices[size] = price;
+            size++;
+        }
+
+        long[] timestamps() {
+            return Arrays.copyOf(timestamps, size);
+        }
+
+        double[] prices() {
+            return Arrays.copyOf(prices, size);
+        }
+    }
+}
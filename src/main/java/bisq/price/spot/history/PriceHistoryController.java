@@ -0,0 +1,66 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot.history;
+
+import bisq.price.PriceController;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+class PriceHistoryController extends PriceController {
+
+    private static final long DEFAULT_RANGE = Duration.ofDays(1).getSeconds();
+    private static final long DEFAULT_RESOLUTION = Duration.ofMinutes(1).getSeconds();
+    private static final long MAX_POINTS = 10_000;
+
+    private final PriceHistory priceHistory;
+
+    public PriceHistoryController(PriceHistory priceHistory) {
+        this.priceHistory = priceHistory;
+    }
+
+    /**
+     * Query the price history of the given currency, by default over the last day at
+     * one minute resolution. All times are in epoch seconds. The resolution is coarsened
+     * as necessary to return at most {@value #MAX_POINTS} points per provider.
+     */
+    @GetMapping(path = "/exchange-rates/history")
+    public List<Map<String, Object>> getHistory(
+        @RequestParam("currency") String currency,
+        @RequestParam(name = "provider", required = false) String provider,
+        @RequestParam(name = "from", required = false) Long from,
+        @RequestParam(name = "to", required = false) Long to,
+        @RequestParam(name = "resolution", required = false) Long resolution) {
+
+        long end = to != null ? to : Instant.now().getEpochSecond();
+        long start = from != null ? from : end - DEFAULT_RANGE;
+        long step = Math.max(resolution != null ? Math.max(resolution, 1) : DEFAULT_RESOLUTION,
+            (end - start) / MAX_POINTS + 1);
+
+        return priceHistory.query(currency.toUpperCase(), provider, start, end, step);
+    }
+}
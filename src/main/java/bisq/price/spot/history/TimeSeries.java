@@ -0,0 +1,284 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot.history;
+
+import java.time.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * A compact, memory-bounded series of prices over time, e.g. of a given currency as
+ * reported by a given provider.
+ * <p>
+ * Points are stored in blocks spanning one day each. Within a block, timestamps and
+ * prices are kept in two separate columns, each encoded as the variable-length deltas
+ * between consecutive values. Prices are first quantized to a fixed number of
+ * significant digits, such that the small changes typical from one point to the next
+ * encode to one to three bytes, as do the regular intervals between timestamps.
+ * <p>
+ * Once older than {@link #RAW_RETENTION}, blocks are downsampled to one point per
+ * {@link #DOWNSAMPLED_RESOLUTION}, and once older than {@link #DOWNSAMPLED_RETENTION},
+ * dropped. Retention is measured against the most recent point rather than the wall
+ * clock. All timestamps are in epoch seconds.
+ */
+class TimeSeries {
+
+    static final long RAW_RETENTION = Duration.ofDays(31).getSeconds();
+    static final long DOWNSAMPLED_RETENTION = Duration.ofDays(366).getSeconds();
+    static final long DOWNSAMPLED_RESOLUTION = Duration.ofHours(1).getSeconds();
+
+    private static final long BLOCK_SPAN = Duration.ofDays(1).getSeconds();
+    private static final int SIGNIFICANT_DIGITS = 8;
+
+    private final Deque<Block> downsampled = new ArrayDeque<>();
+    private final Deque<Block> raw = new ArrayDeque<>();
+    private Block open;
+
+    private int exponent;
+
+    /**
+     * Append the given point, unless it is not more recent than the last one appended,
+     * as is the case when a provider reports the same data twice.
+     */
+    synchronized void record(long timestamp, double price) {
+        if (!(price > 0) || Double.isInfinite(price))
+            return;
+
+        if (open == null && raw.isEmpty() && downsampled.isEmpty())
+            exponent = SIGNIFICANT_DIGITS - 1 - (int) Math.floor(Math.log10(price));
+
+        if (open != null && timestamp <= open.lastTimestamp)
+            return;
+
+        if (open != null && Math.floorDiv(timestamp, BLOCK_SPAN) != Math.floorDiv(open.firstTimestamp, BLOCK_SPAN)) {
+            raw.addLast(open.trimmed());
+            open = null;
+            expire(timestamp);
+        }
+
+        if (open == null)
+            open = new Block();
+
+        open.append(timestamp, quantize(price));
+    }
+
+    /**
+     * Pass the last point of each interval of the given resolution between the given
+     * timestamps, inclusive, to the given consumer, in chronological order.
+     */
+    synchronized void query(long from, long to, long resolution, PointConsumer consumer) {
+        Downsampler downsampler = new Downsampler(resolution, (timestamp, value) -> {
+            if (timestamp >= from && timestamp <= to)
+                consumer.accept(timestamp, dequantize(value));
+        });
+
+        downsampled.forEach(b -> b.forEachBetween(from, to, downsampler));
+        raw.forEach(b -> b.forEachBetween(from, to, downsampler));
+        if (open != null)
+            open.forEachBetween(from, to, downsampler);
+
+        downsampler.flush();
+    }
+
+    /**
+     * @return the approximate number of bytes occupied by this series' points
+     */
+    synchronized long sizeInBytes() {
+        long size = open != null ? open.sizeInBytes() : 0;
+        for (Block block : raw)
+            size += block.sizeInBytes();
+        for (Block block : downsampled)
+            size += block.sizeInBytes();
+        return size;
+    }
+
+    private void expire(long now) {
+        while (!raw.isEmpty() && raw.peekFirst().lastTimestamp < now - RAW_RETENTION) {
+            Block block = new Block();
+            Downsampler downsampler = new Downsampler(DOWNSAMPLED_RESOLUTION, block::append);
+            raw.removeFirst().forEachBetween(Long.MIN_VALUE, Long.MAX_VALUE, downsampler);
+            downsampler.flush();
+            downsampled.addLast(block.trimmed());
+        }
+        while (!downsampled.isEmpty() && downsampled.peekFirst().lastTimestamp < now - DOWNSAMPLED_RETENTION)
+            downsampled.removeFirst();
+    }
+
+    private long quantize(double price) {
+        return exponent >= 0
+            ? Math.round(price * Math.pow(10, exponent))
+            : Math.round(price / Math.pow(10, -exponent));
+    }
+
+    private double dequantize(long value) {
+        return exponent >= 0
+            ? value / Math.pow(10, exponent)
+            : value * Math.pow(10, -exponent);
+    }
+
+
+    @FunctionalInterface
+    interface PointConsumer {
+
+        void accept(long timestamp, double price);
+    }
+
+
+    @FunctionalInterface
+    private interface QuantizedPointConsumer {
+
+        void accept(long timestamp, long value);
+    }
+
+
+    /**
+     * Passes on only the last of the points it is given within each interval of a given
+     * resolution, where points must be given in chronological order.
+     */
+    private static class Downsampler implements QuantizedPointConsumer {
+
+        private final long resolution;
+        private final QuantizedPointConsumer downstream;
+
+        private boolean pending;
+        private long pendingTimestamp;
+        private long pendingValue;
+
+        Downsampler(long resolution, QuantizedPointConsumer downstream) {
+            this.resolution = resolution;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void accept(long timestamp, long value) {
+            if (pending && Math.floorDiv(timestamp, resolution) != Math.floorDiv(pendingTimestamp, resolution))
+                downstream.accept(pendingTimestamp, pendingValue);
+
+            pending = true;
+            pendingTimestamp = timestamp;
+            pendingValue = value;
+        }
+
+        void flush() {
+            if (pending)
+                downstream.accept(pendingTimestamp, pendingValue);
+            pending = false;
+        }
+    }
+
+
+    /**
+     * A chronological run of points, stored as two columns of delta-encoded varints.
+     */
+    private static class Block {
+
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long firstValue;
+        private long lastValue;
+        private int count;
+
+        private byte[] timestamps = new byte[64];
+        private int timestampsLength;
+        private byte[] values = new byte[64];
+        private int valuesLength;
+
+        void append(long timestamp, long value) {
+            if (count == 0) {
+                firstTimestamp = timestamp;
+                firstValue = value;
+            } else {
+                timestamps = ensureCapacity(timestamps, timestampsLength);
+                timestampsLength = writeVarLong(timestamps, timestampsLength, timestamp - lastTimestamp);
+                values = ensureCapacity(values, valuesLength);
+                valuesLength = writeVarLong(values, valuesLength, zigZag(value - lastValue));
+            }
+            lastTimestamp = timestamp;
+            lastValue = value;
+            count++;
+        }
+
+        void forEachBetween(long from, long to, QuantizedPointConsumer consumer) {
+            if (count == 0 || lastTimestamp < from || firstTimestamp > to)
+                return;
+
+            long timestamp = firstTimestamp;
+            long value = firstValue;
+            int timestampsPos = 0;
+            int valuesPos = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    long delta = 0;
+                    for (int shift = 0; ; shift += 7) {
+                        byte b = timestamps[timestampsPos++];
+                        delta |= (long) (b & 0x7F) << shift;
+                        if (b >= 0)
+                            break;
+                    }
+                    timestamp += delta;
+
+                    long zigZagged = 0;
+                    for (int shift = 0; ; shift += 7) {
+                        byte b = values[valuesPos++];
+                        zigZagged |= (long) (b & 0x7F) << shift;
+                        if (b >= 0)
+                            break;
+                    }
+                    value += (zigZagged >>> 1) ^ -(zigZagged & 1);
+                }
+
+                if (timestamp > to)
+                    return;
+                if (timestamp >= from)
+                    consumer.accept(timestamp, value);
+            }
+        }
+
+        Block trimmed() {
+            timestamps = Arrays.copyOf(timestamps, timestampsLength);
+            values = Arrays.copyOf(values, valuesLength);
+            return this;
+        }
+
+        long sizeInBytes() {
+            return timestamps.length + values.length + 64;
+        }
+
+        private static byte[] ensureCapacity(byte[] bytes, int length) {
+            // a varint of a 64-bit value takes at most ten bytes
+            return length + 10 <= bytes.length ? bytes : Arrays.copyOf(bytes, Math.max(bytes.length * 2, 64));
+        }
+
+        private static int writeVarLong(byte[] bytes, int pos, long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[pos++] = (byte) value;
+            return pos;
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
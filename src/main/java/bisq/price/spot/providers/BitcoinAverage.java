@@ -17,8 +17,11 @@
 
 package bisq.price.spot.providers;
 
+import bisq.price.RequestQuota;
 import bisq.price.spot.ExchangeRate;
 import bisq.price.spot.ExchangeRateProvider;
+import bisq.price.util.Hex;
+import bisq.price.util.HttpClient;
 
 import org.knowm.xchange.bitcoinaverage.dto.marketdata.BitcoinAverageTicker;
 import org.knowm.xchange.bitcoinaverage.dto.marketdata.BitcoinAverageTickers;
@@ -27,11 +30,8 @@ import org.springframework.core.annotation.Order;
 import org.springframework.core.env.Environment;
 import org.springframework.http.RequestEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import org.bouncycastle.util.encoders.Hex;
-
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
@@ -58,8 +58,9 @@ public abstract class BitcoinAverage extends ExchangeRateProvider {
      */
     private static final double MAX_REQUESTS_PER_MONTH = 42_514;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final HttpClient httpClient;
     private final String symbolSet;
+    private final RequestQuota requestQuota;
 
     private String pubKey;
     private Mac mac;
@@ -67,16 +68,42 @@ public abstract class BitcoinAverage extends ExchangeRateProvider {
     /**
      * @param symbolSet "global" or "local"; see https://apiv2.bitcoinaverage.com/#supported-currencies
      */
-    public BitcoinAverage(String name, String prefix, double pctMaxRequests, String symbolSet, Environment env) {
+    public BitcoinAverage(String name, String prefix, double pctMaxRequests, String symbolSet, Environment env,
+                          HttpClient httpClient) {
         super(name, prefix, refreshIntervalFor(pctMaxRequests));
+        this.httpClient = httpClient;
         this.symbolSet = symbolSet;
+        this.requestQuota = new RequestQuota(env, name, (long) (MAX_REQUESTS_PER_MONTH * pctMaxRequests));
         this.pubKey = env.getRequiredProperty("BITCOIN_AVG_PUBKEY");
         this.mac = initMac(env.getRequiredProperty("BITCOIN_AVG_PRIVKEY"));
     }
 
+    /**
+     * Refreshes may adapt to price volatility, but never faster than the share of the
+     * monthly request quota left for this provider allows.
+     */
+    @Override
+    protected Duration getMinRefreshDelay() {
+        return requestQuota.getMinDelay();
+    }
+
+    /**
+     * As the request quota paces refreshes, they may adapt to price volatility down to a
+     * quarter of the refresh interval.
+     */
+    @Override
+    protected Duration getMinRefreshInterval() {
+        return refreshInterval.dividedBy(4);
+    }
+
     @Override
     public Set<ExchangeRate> doGet() {
+        requestQuota.acquire();
+
+        return fetchExchangeRates();
+    }
 
+    Set<ExchangeRate> fetchExchangeRates() {
         return getTickersKeyedByCurrency().entrySet().stream()
             .filter(e -> supportedCurrency(e.getKey()))
             .map(e ->
@@ -104,7 +131,7 @@ public abstract class BitcoinAverage extends ExchangeRateProvider {
     }
 
     private Map<String, BitcoinAverageTicker> getTickersKeyedByCurrencyPair() {
-        return restTemplate.exchange(
+        return httpClient.exchange(
             RequestEntity
                 .get(UriComponentsBuilder
                     .fromUriString("https://apiv2.bitcoinaverage.com/indices/{symbol-set}/ticker/all?crypto=BTC")
@@ -118,7 +145,7 @@ public abstract class BitcoinAverage extends ExchangeRateProvider {
 
     protected String getAuthSignature() {
         String payload = String.format("%s.%s", Instant.now().getEpochSecond(), pubKey);
-        return String.format("%s.%s", payload, Hex.toHexString(mac.doFinal(payload.getBytes())));
+        return String.format("%s.%s", payload, Hex.encode(mac.doFinal(payload.getBytes())));
     }
 
     private static Mac initMac(String privKey) {
@@ -142,8 +169,8 @@ public abstract class BitcoinAverage extends ExchangeRateProvider {
     @Component
     @Order(1)
     public static class Global extends BitcoinAverage {
-        public Global(Environment env) {
-            super("BTCA_G", "btcAverageG", 0.3, "global", env);
+        public Global(Environment env, HttpClient httpClient) {
+            super("BTCA_G", "btcAverageG", 0.3, "global", env, httpClient);
         }
     }
 
@@ -151,8 +178,8 @@ public abstract class BitcoinAverage extends ExchangeRateProvider {
     @Component
     @Order(2)
     public static class Local extends BitcoinAverage {
-        public Local(Environment env) {
-            super("BTCA_L", "btcAverageL", 0.7, "local", env);
+        public Local(Environment env, HttpClient httpClient) {
+            super("BTCA_L", "btcAverageL", 0.7, "local", env, httpClient);
         }
     }
 }
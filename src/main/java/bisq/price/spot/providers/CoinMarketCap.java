@@ -15,63 +15,98 @@
  * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package bisq.price.spot.providers;
 
 import bisq.price.spot.ExchangeRate;
 import bisq.price.spot.ExchangeRateProvider;
 import bisq.price.util.Altcoins;
+import bisq.price.util.HttpClient;
 
-import org.knowm.xchange.coinmarketcap.dto.marketdata.CoinMarketCapTicker;
-
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.RequestEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
 import java.time.Duration;
 
-import java.util.List;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Component
 @Order(3)
 class CoinMarketCap extends ExchangeRateProvider {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final HttpClient httpClient;
 
-    public CoinMarketCap() {
+    public CoinMarketCap(HttpClient httpClient) {
         super("CMC", "coinmarketcap", Duration.ofMinutes(5)); // large data structure, so don't request it too often
+        this.httpClient = httpClient;
     }
 
     @Override
     public Set<ExchangeRate> doGet() {
-
-        return getTickers()
-            .filter(t -> Altcoins.ALL_SUPPORTED.contains(t.getIsoCode()))
-            .map(t ->
-                new ExchangeRate(
-                    t.getIsoCode(),
-                    t.getPriceBTC(),
-                    t.getLastUpdated(),
-                    this.getName()
-                )
-            )
-            .collect(Collectors.toSet());
-    }
-
-    private Stream<CoinMarketCapTicker> getTickers() {
-        return restTemplate.exchange(
+        return httpClient.stream(
             RequestEntity
                 .get(UriComponentsBuilder
                     .fromUriString("https://api.coinmarketcap.com/v1/ticker/?limit=200").build()
                     .toUri())
                 .build(),
-            new ParameterizedTypeReference<List<CoinMarketCapTicker>>() {
+            this::readSupportedTickers
+        );
+    }
+
+    /**
+     * Read the ticker array token by token, creating exchange rates for supported
+     * altcoins only and skipping over all other tickers without binding them to objects.
+     */
+    private Set<ExchangeRate> readSupportedTickers(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY)
+            throw new JsonParseException(parser, "expected array of tickers");
+
+        Set<ExchangeRate> exchangeRates = new HashSet<>();
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String symbol = null;
+            String priceBtc = null;
+            long lastUpdated = 0;
+            boolean supported = true;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if (!supported) {
+                    parser.skipChildren();
+                } else if ("symbol".equals(field)) {
+                    symbol = parser.getValueAsString();
+                    supported = Altcoins.ALL_SUPPORTED.contains(symbol);
+                } else if ("price_btc".equals(field)) {
+                    priceBtc = parser.getValueAsString();
+                } else if ("last_updated".equals(field)) {
+                    lastUpdated = parser.getValueAsLong();
+                } else {
+                    parser.skipChildren();
+                }
             }
-        ).getBody().stream();
+
+            if (supported && symbol != null && priceBtc != null)
+                exchangeRates.add(
+                    new ExchangeRate(
+                        symbol,
+                        Double.parseDouble(priceBtc),
+                        lastUpdated * 1000, // seconds to millis, consistent with other providers
+                        this.getName()
+                    )
+                );
+        }
+
+        return exchangeRates;
     }
 }
@@ -15,80 +15,100 @@
  * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package bisq.price.spot.providers;
 
 import bisq.price.spot.ExchangeRate;
 import bisq.price.spot.ExchangeRateProvider;
 import bisq.price.util.Altcoins;
+import bisq.price.util.HttpClient;
 
-import org.knowm.xchange.currency.Currency;
-import org.knowm.xchange.currency.CurrencyPair;
-import org.knowm.xchange.poloniex.dto.marketdata.PoloniexMarketData;
-import org.knowm.xchange.poloniex.dto.marketdata.PoloniexTicker;
-
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.RequestEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
 import java.time.Duration;
 
-import java.util.Date;
-import java.util.Map;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Component
 @Order(4)
 class Poloniex extends ExchangeRateProvider {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final String BTC_PAIR_PREFIX = "BTC_"; // e.g. BTC_LTC
+
+    private final HttpClient httpClient;
 
-    public Poloniex() {
+    public Poloniex(HttpClient httpClient) {
         super("POLO", "poloniex", Duration.ofMinutes(1));
+        this.httpClient = httpClient;
     }
 
     @Override
     public Set<ExchangeRate> doGet() {
-        Date timestamp = new Date(); // Poloniex tickers don't include their own timestamp
-
-        return getTickers()
-            .filter(t -> t.getCurrencyPair().base.equals(Currency.BTC))
-            .filter(t -> Altcoins.ALL_SUPPORTED.contains(t.getCurrencyPair().counter.getCurrencyCode()))
-            .map(t ->
-                new ExchangeRate(
-                    t.getCurrencyPair().counter.getCurrencyCode(),
-                    t.getPoloniexMarketData().getLast(),
-                    timestamp,
-                    this.getName()
-                )
-            )
-            .collect(Collectors.toSet());
-    }
-
-    private Stream<PoloniexTicker> getTickers() {
+        long timestamp = System.currentTimeMillis(); // Poloniex tickers don't include their own timestamp
 
-        return getTickersKeyedByCurrencyPair().entrySet().stream()
-            .map(e -> {
-                String pair = e.getKey();
-                PoloniexMarketData data = e.getValue();
-                String[] symbols = pair.split("_"); // e.g. BTC_USD => [BTC, USD]
-                return new PoloniexTicker(data, new CurrencyPair(symbols[0], symbols[1]));
-            });
-    }
-
-    private Map<String, PoloniexMarketData> getTickersKeyedByCurrencyPair() {
-        return restTemplate.exchange(
+        return httpClient.stream(
             RequestEntity
                 .get(UriComponentsBuilder
                     .fromUriString("https://poloniex.com/public?command=returnTicker").build()
                     .toUri())
                 .build(),
-            new ParameterizedTypeReference<Map<String, PoloniexMarketData>>() {
+            parser -> readSupportedTickers(parser, timestamp)
+        );
+    }
+
+    /**
+     * Read the object of tickers keyed by currency pair token by token, creating exchange
+     * rates for supported BTC-based pairs only and skipping over all other market data
+     * without binding it to objects.
+     */
+    private Set<ExchangeRate> readSupportedTickers(JsonParser parser, long timestamp) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            throw new JsonParseException(parser, "expected object of tickers keyed by currency pair");
+
+        Set<ExchangeRate> exchangeRates = new HashSet<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String pair = parser.getCurrentName();
+            parser.nextToken();
+
+            if (!pair.startsWith(BTC_PAIR_PREFIX)
+                || !Altcoins.ALL_SUPPORTED.contains(pair.substring(BTC_PAIR_PREFIX.length()))) {
+                parser.skipChildren();
+                continue;
             }
-        ).getBody();
+
+            String last = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if ("last".equals(field))
+                    last = parser.getValueAsString();
+                else
+                    parser.skipChildren();
+            }
+
+            if (last != null)
+                exchangeRates.add(
+                    new ExchangeRate(
+                        pair.substring(BTC_PAIR_PREFIX.length()),
+                        Double.parseDouble(last),
+                        timestamp,
+                        this.getName()
+                    )
+                );
+        }
+
+        return exchangeRates;
     }
 }
@@ -0,0 +1,34 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.spot.providers;
+
+import org.springframework.context.annotation.Import;
+
+/**
+ * Lists this package's components, for contexts that do not scan the classpath for them,
+ * such as the slim mode's {@code bisq.price.SlimServer}.
+ */
+@Import({
+    BitcoinAverage.Global.class,
+    BitcoinAverage.Local.class,
+    CoinMarketCap.class,
+    Poloniex.class,
+    XChangeProviders.class
+})
+public class SpotProviderComponents {
+}
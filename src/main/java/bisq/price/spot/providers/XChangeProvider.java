@@ -0,0 +1,262 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot.providers;
+
+import bisq.price.spot.ExchangeRate;
+import bisq.price.spot.ExchangeRateProvider;
+import bisq.price.util.Altcoins;
+import bisq.price.util.HttpClient;
+
+import org.knowm.xchange.Exchange;
+import org.knowm.xchange.ExchangeFactory;
+import org.knowm.xchange.ExchangeSpecification;
+import org.knowm.xchange.currency.Currency;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.knowm.xchange.kraken.KrakenAdapters;
+import org.knowm.xchange.kraken.KrakenUtils;
+import org.knowm.xchange.kraken.dto.marketdata.KrakenTicker;
+import org.knowm.xchange.kraken.service.KrakenMarketDataServiceRaw;
+import org.knowm.xchange.poloniex.PoloniexAdapters;
+import org.knowm.xchange.poloniex.PoloniexUtils;
+import org.knowm.xchange.poloniex.dto.marketdata.PoloniexMarketData;
+import org.knowm.xchange.poloniex.dto.marketdata.PoloniexTicker;
+import org.knowm.xchange.poloniex.service.PoloniexMarketDataServiceRaw;
+
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Generic {@link ExchangeRateProvider} for any exchange supported by XChange, configured
+ * with properties rather than implemented anew for each exchange.
+ * <p>
+ * On its first refresh, the provider looks up the exchange's markets and picks those
+ * yielding a Bisq exchange rate: BTC priced in a fiat currency (e.g. BTC/USD), and
+ * supported altcoins priced in BTC (e.g. LTC/BTC), optionally limited to a configured
+ * set of currencies. Where XChange exposes a call returning the tickers of many markets
+ * at once (see {@link #BULK_TICKERS}), each refresh makes just that one call. Otherwise,
+ * each market's ticker is requested separately, at most {@code batchSize} at a time,
+ * from a small pool of threads shared by all instances.
+ *
+ * @see XChangeProviders
+ */
+class XChangeProvider extends ExchangeRateProvider implements Ordered {
+
+    private static final int TICKER_THREADS = 8;
+
+    /**
+     * Fetchers returning the tickers of many markets with a single request, keyed by
+     * the name of the {@link Exchange} implementation they apply to.
+     */
+    private static final Map<String, BulkTickers> BULK_TICKERS = new HashMap<>();
+
+    static {
+        BULK_TICKERS.put("org.knowm.xchange.kraken.KrakenExchange", XChangeProvider::getKrakenTickers);
+        BULK_TICKERS.put("org.knowm.xchange.poloniex.PoloniexExchange", XChangeProvider::getPoloniexTickers);
+    }
+
+    private static final ExecutorService tickerFetchers =
+        Executors.newFixedThreadPool(TICKER_THREADS, daemonThreads("xchange-ticker-"));
+
+    private final int order;
+    private final String exchangeClassName;
+    private final Set<String> currencies;
+    private final int batchSize;
+
+    private Exchange exchange;
+    private List<CurrencyPair> currencyPairs;
+
+    /**
+     * @param currencies the currencies to provide exchange rates for, or all currencies
+     *                   the exchange has markets for if empty
+     */
+    public XChangeProvider(String name, String prefix, int order, Duration refreshInterval,
+                           String exchangeClassName, Set<String> currencies, int batchSize) {
+        super(name, prefix, refreshInterval);
+        this.order = order;
+        this.exchangeClassName = exchangeClassName;
+        this.currencies = currencies;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    protected Set<ExchangeRate> doGet() {
+        if (exchange == null) {
+            // creating the exchange requests its metadata, so we do it here rather than
+            // at construction time for failures to be retried like any failed refresh
+            ExchangeSpecification specification = ExchangeFactory.INSTANCE
+                .createExchangeWithoutSpecification(exchangeClassName)
+                .getDefaultExchangeSpecification();
+            // XChange calls do not respond to interruption, so they must time out by themselves
+            specification.setHttpConnTimeout((int) HttpClient.CONNECT_TIMEOUT.toMillis());
+            specification.setHttpReadTimeout((int) HttpClient.READ_TIMEOUT.toMillis());
+            Exchange exchange = ExchangeFactory.INSTANCE.createExchange(specification);
+            currencyPairs = exchange.getExchangeSymbols().stream()
+                .filter(pair -> currencyOf(pair) != null)
+                .collect(Collectors.toList());
+            log.info("providing exchange rates for {}", currencyPairs);
+            this.exchange = exchange;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        Map<CurrencyPair, Ticker> tickers = BULK_TICKERS.containsKey(exchangeClassName) ?
+            getBulkTickers() :
+            getTickersInBatches();
+
+        return tickers.entrySet().stream()
+            .filter(e -> e.getValue().getLast() != null)
+            .map(e ->
+                new ExchangeRate(
+                    currencyOf(e.getKey()),
+                    e.getValue().getLast().doubleValue(),
+                    e.getValue().getTimestamp() != null ? e.getValue().getTimestamp().getTime() : timestamp,
+                    this.getName()
+                )
+            )
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the currency the given market yields a Bisq exchange rate for, or null if
+     * it yields none
+     */
+    private String currencyOf(CurrencyPair pair) {
+        String currency;
+        if (Currency.BTC.equals(pair.base) && isFiat(pair.counter.getCurrencyCode()))
+            currency = pair.counter.getCurrencyCode();
+        else if (Currency.BTC.equals(pair.counter) && Altcoins.ALL_SUPPORTED.contains(pair.base.getCurrencyCode()))
+            currency = pair.base.getCurrencyCode();
+        else
+            return null;
+
+        return currencies.isEmpty() || currencies.contains(currency) ? currency : null;
+    }
+
+    private static boolean isFiat(String currencyCode) {
+        try {
+            java.util.Currency.getInstance(currencyCode);
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private Map<CurrencyPair, Ticker> getBulkTickers() {
+        try {
+            return BULK_TICKERS.get(exchangeClassName).get(exchange, currencyPairs);
+        } catch (IOException ex) {
+            throw new IllegalStateException("could not fetch tickers", ex);
+        }
+    }
+
+    private Map<CurrencyPair, Ticker> getTickersInBatches() {
+        Map<CurrencyPair, Ticker> tickers = new HashMap<>();
+        List<CurrencyPair> failed = new ArrayList<>();
+        Exception lastFailure = null;
+
+        for (int from = 0; from < currencyPairs.size(); from += batchSize) {
+            List<CurrencyPair> batch = currencyPairs.subList(from, Math.min(from + batchSize, currencyPairs.size()));
+            List<Future<Ticker>> futures = batch.stream()
+                .map(pair -> tickerFetchers.submit(() -> exchange.getMarketDataService().getTicker(pair)))
+                .collect(Collectors.toList());
+
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    tickers.put(batch.get(i), futures.get(i).get());
+                } catch (ExecutionException ex) {
+                    failed.add(batch.get(i));
+                    lastFailure = ex;
+                } catch (InterruptedException ex) {
+                    futures.forEach(f -> f.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while fetching tickers", ex);
+                }
+            }
+        }
+
+        // a few markets failing is no reason to discard all others
+        if (tickers.isEmpty() && lastFailure != null)
+            throw new IllegalStateException("could not fetch any tickers", lastFailure.getCause());
+        if (!failed.isEmpty())
+            log.warn("could not fetch tickers for {}: {}", failed, lastFailure.getCause().toString());
+
+        return tickers;
+    }
+
+    private static Map<CurrencyPair, Ticker> getKrakenTickers(Exchange exchange, List<CurrencyPair> pairs)
+        throws IOException {
+        KrakenMarketDataServiceRaw marketDataService = (KrakenMarketDataServiceRaw) exchange.getMarketDataService();
+        Map<String, KrakenTicker> krakenTickers = marketDataService.getKrakenTicker(pairs.toArray(new CurrencyPair[0]));
+
+        Map<CurrencyPair, Ticker> tickers = new HashMap<>();
+        for (CurrencyPair pair : pairs) {
+            KrakenTicker krakenTicker = krakenTickers.get(KrakenUtils.createKrakenCurrencyPair(pair));
+            if (krakenTicker != null)
+                tickers.put(pair, KrakenAdapters.adaptTicker(krakenTicker, pair));
+        }
+        return tickers;
+    }
+
+    private static Map<CurrencyPair, Ticker> getPoloniexTickers(Exchange exchange, List<CurrencyPair> pairs)
+        throws IOException {
+        PoloniexMarketDataServiceRaw marketDataService = (PoloniexMarketDataServiceRaw) exchange.getMarketDataService();
+        Set<CurrencyPair> wanted = new HashSet<>(pairs);
+
+        Map<CurrencyPair, Ticker> tickers = new HashMap<>();
+        for (Map.Entry<String, PoloniexMarketData> e : marketDataService.getAllPoloniexTickers().entrySet()) {
+            CurrencyPair pair = PoloniexUtils.toCurrencyPair(e.getKey());
+            if (wanted.contains(pair))
+                tickers.put(pair, PoloniexAdapters.adaptPoloniexTicker(new PoloniexTicker(e.getValue(), pair), pair));
+        }
+        return tickers;
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String threadNamePrefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+
+    @FunctionalInterface
+    private interface BulkTickers {
+        Map<CurrencyPair, Ticker> get(Exchange exchange, List<CurrencyPair> pairs) throws IOException;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.spot.providers;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Registers an {@link XChangeProvider} bean for each exchange listed in the
+ * {@code xchange.providers} property, such that it is picked up like any other
+ * {@link bisq.price.spot.ExchangeRateProvider}. Each exchange is configured with
+ * properties prefixed by {@code xchange.<id>.}, e.g. for {@code xchange.providers=kraken}:
+ * <pre>
+ * xchange.kraken.exchange=org.knowm.xchange.kraken.KrakenExchange   # required
+ * xchange.kraken.name=KRAKEN                    # defaults to the id in upper case
+ * xchange.kraken.prefix=kraken                  # defaults to the id
+ * xchange.kraken.order=5                        # defaults to 0, see below
+ * xchange.kraken.refresh-interval-seconds=60    # defaults to 60
+ * xchange.kraken.currencies=USD,EUR,LTC         # defaults to all available
+ * xchange.kraken.batch-size=4                   # defaults to 4
+ * </pre>
+ * As with the {@link org.springframework.core.annotation.Order} of built-in providers,
+ * exchange rates of providers with a higher order take precedence. The default order
+ * of 0 ranks configured exchanges below all built-in providers.
+ * <p>
+ * As usual, these properties may also be set as environment variables, e.g.
+ * {@code XCHANGE_PROVIDERS=kraken} and {@code XCHANGE_KRAKEN_EXCHANGE=...}.
+ */
+@Component
+class XChangeProviders implements BeanDefinitionRegistryPostProcessor, EnvironmentAware {
+
+    private static final String PREFIX = "xchange.";
+
+    private Environment env;
+
+    @Override
+    public void setEnvironment(Environment env) {
+        this.env = env;
+    }
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+        for (String id : env.getProperty(PREFIX + "providers", String[].class, new String[0])) {
+            String property = PREFIX + id + ".";
+            registry.registerBeanDefinition(id + "XChangeProvider", BeanDefinitionBuilder
+                .genericBeanDefinition(XChangeProvider.class)
+                .addConstructorArgValue(env.getProperty(property + "name", id.toUpperCase()))
+                .addConstructorArgValue(env.getProperty(property + "prefix", id))
+                .addConstructorArgValue(env.getProperty(property + "order", Integer.class, 0))
+                .addConstructorArgValue(Duration.ofSeconds(
+                    env.getProperty(property + "refresh-interval-seconds", Long.class, 60L)))
+                .addConstructorArgValue(env.getRequiredProperty(property + "exchange"))
+                .addConstructorArgValue(currencies(env.getProperty(property + "currencies")))
+                .addConstructorArgValue(env.getProperty(property + "batch-size", Integer.class, 4))
+                .getBeanDefinition());
+        }
+    }
+
+    private static Set<String> currencies(String currencies) {
+        if (!StringUtils.hasText(currencies))
+            return Collections.emptySet();
+
+        return new HashSet<>(Arrays.asList(StringUtils.commaDelimitedListToStringArray(
+            StringUtils.trimAllWhitespace(currencies))));
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+    }
+}
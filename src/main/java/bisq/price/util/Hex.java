@@ -0,0 +1,45 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.price.util;
+
+/**
+ * Lower-case hexadecimal encoding of byte arrays, e.g. of message authentication codes.
+ */
+public abstract class Hex {
+
+    public static String encode(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /**
+     * @return the bytes represented by the given hex string, or an empty array if it is
+     * null or not a valid lower-case hex string
+     */
+    public static byte[] decode(String hex) {
+        if (hex == null || !hex.matches("([0-9a-f]{2})*"))
+            return new byte[0];
+
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        return bytes;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.util;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+
+import java.time.Duration;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The HTTP client shared by all {@link bisq.price.PriceProvider} implementations to
+ * fetch data from upstream APIs.
+ * <p>
+ * Requests are executed asynchronously on a single pooled OkHttp client, which reuses
+ * keep-alive connections and TLS sessions across refreshes, negotiates HTTP/2 where both
+ * the JVM (via ALPN) and the upstream server support it, limits the number of concurrent
+ * requests per host, and enforces connect and read timeouts such that a hung upstream
+ * cannot block a refresh indefinitely. Callers block on the response future in an
+ * interruptible way, so a refresh cancelled by the {@code PriceProviderScheduler} also
+ * cancels its in-flight request, and for no longer than {@link #CALL_TIMEOUT}, such
+ * that an upstream trickling its response does not occupy the calling thread either.
+ * Clients other than this one, e.g. those of XChange, should apply the same connect
+ * and read timeouts.
+ */
+@Component
+public class HttpClient implements DisposableBean {
+
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration READ_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration CALL_TIMEOUT = Duration.ofSeconds(25);
+    private static final Duration WRITE_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int MAX_REQUESTS = 32;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final Duration KEEP_ALIVE = Duration.ofMinutes(10);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final OkHttpClient client;
+    private final AsyncRestTemplate restTemplate;
+
+    @Autowired
+    public HttpClient() {
+        this(pooledClient());
+    }
+
+    private HttpClient(OkHttpClient client) {
+        this.client = client;
+        this.restTemplate = new AsyncRestTemplate(new OkHttp3ClientHttpRequestFactory(client));
+    }
+
+    /**
+     * Create a client that executes requests with the given factory instead of the
+     * default pooled OkHttp client, e.g. in order to replay recorded responses.
+     */
+    public HttpClient(AsyncClientHttpRequestFactory requestFactory) {
+        this.client = null;
+        this.restTemplate = new AsyncRestTemplate(requestFactory);
+    }
+
+    public <T> ResponseEntity<T> exchange(RequestEntity<?> request, Class<T> responseType) {
+        return await(restTemplate.exchange(request.getUrl(), request.getMethod(), request, responseType));
+    }
+
+    public <T> ResponseEntity<T> exchange(RequestEntity<?> request, ParameterizedTypeReference<T> responseType) {
+        return await(restTemplate.exchange(request.getUrl(), request.getMethod(), request, responseType));
+    }
+
+    /**
+     * Read the JSON response body incrementally, token by token, with the given reader.
+     * Unlike the {@code exchange} methods, this does not bind the whole body to an object
+     * graph first, which makes it the better choice for large payloads of which only a
+     * fraction is of interest. A {@code byte[]} request body, if any, is sent as is.
+     */
+    public <T> T stream(RequestEntity<?> request, JsonReader<T> reader) {
+        ResponseExtractor<T> extractor = response -> {
+            try (JsonParser parser = JSON_FACTORY.createParser(response.getBody())) {
+                return reader.read(parser);
+            }
+        };
+        return await(restTemplate.execute(request.getUrl(), request.getMethod(),
+            r -> {
+                r.getHeaders().putAll(request.getHeaders());
+                if (request.getBody() instanceof byte[])
+                    r.getBody().write((byte[]) request.getBody());
+            }, extractor));
+    }
+
+    private static <T> T await(ListenableFuture<T> response) {
+        try {
+            return response.get(CALL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            response.cancel(true);
+            throw new RestClientException("no response within " + CALL_TIMEOUT, ex);
+        } catch (InterruptedException ex) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RestClientException("interrupted while awaiting response", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RestClientException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    private static OkHttpClient pooledClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE.toMillis(), TimeUnit.MILLISECONDS))
+            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectTimeout(CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+            .readTimeout(READ_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+            .writeTimeout(WRITE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+            .retryOnConnectionFailure(true)
+            .build();
+    }
+
+    @FunctionalInterface
+    public interface JsonReader<T> {
+
+        T read(JsonParser parser) throws IOException;
+    }
+
+    @Override
+    public void destroy() {
+        if (client == null)
+            return;
+
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
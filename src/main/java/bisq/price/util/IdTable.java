@@ -0,0 +1,108 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.price.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * An append-only table assigning small, dense integer IDs to names such as currency
+ * codes or provider names, so that data keyed by them can be stored in arrays indexed
+ * by ID rather than in maps hashing the names over and over again. Each name is stored
+ * once, such that all holders of an ID share the same {@link String} instance.
+ * <p>
+ * IDs are never reused or released, which is fine for the small, slowly growing sets of
+ * names this is meant for. Looking up a name by ID is a plain array access; interning
+ * a name already known is a single hash lookup. Instances are thread-safe.
+ */
+public final class IdTable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile String[] names = new String[64];
+    private volatile int size;
+    private volatile int[] sortedIds = new int[0];
+
+    /**
+     * @return the ID of the given name, assigning the next free one if the name is new
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * @return the ID of the given name, or -1 if it has never been interned
+     */
+    public int lookup(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return the name with the given ID
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of IDs assigned so far, i.e. one greater than the largest one
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return all IDs assigned so far, ordered by their names; callers must not modify
+     * the returned array
+     */
+    public int[] sortedIds() {
+        int[] sortedIds = this.sortedIds;
+        return sortedIds.length == size ? sortedIds : sort();
+    }
+
+    private synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+
+        // the name is stored before its ID is published, such that whoever obtains the
+        // ID can also look up the name
+        String[] names = size < this.names.length ? this.names : Arrays.copyOf(this.names, size * 2);
+        names[size] = name;
+        this.names = names;
+        ids.put(name, size);
+        return size++;
+    }
+
+    private synchronized int[] sort() {
+        String[] names = this.names;
+        int[] sortedIds = IntStream.range(0, size)
+            .boxed()
+            .sorted(Comparator.comparing(id -> names[id]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.sortedIds = sortedIds;
+        return sortedIds;
+    }
+}
@@ -18,6 +18,7 @@
 package bisq.price.util;
 
 import bisq.price.PriceController;
+import bisq.price.SnapshotPart;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.info.Info;
@@ -31,7 +32,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 
 @RestController
-class VersionController extends PriceController implements InfoContributor {
+class VersionController extends PriceController implements InfoContributor, SnapshotPart {
 
     private final String version;
 
@@ -48,6 +49,21 @@ class VersionController extends PriceController implements InfoContributor {
         return version;
     }
 
+    @Override
+    public String getPartName() {
+        return "version";
+    }
+
+    @Override
+    public View getView() {
+        return currencies -> version;
+    }
+
+    @Override
+    public void addUpdateListener(Runnable listener) {
+        // the version never changes
+    }
+
     @Override
     public void contribute(Info.Builder builder) {
         builder.withDetail("version", version);